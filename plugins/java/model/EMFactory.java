@@ -4,23 +4,25 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import javax.persistence.spi.PersistenceUnitTransactionType;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 import static logger.Logger.LOGGER;
 import static org.eclipse.persistence.config.PersistenceUnitProperties.*;
 
 public class EMFactory {
   private final EntityManagerFactory emf;
+  private final HashMap<String, Object> properties;
 
   public EMFactory(String rawDbContext, boolean dropAndCreateTables) {
+    this.properties = initProperties(rawDbContext, dropAndCreateTables);
     this.emf =
-      Persistence.createEntityManagerFactory(
-        "ParserPU",
-        initProperties(rawDbContext, dropAndCreateTables)
-      );
-
+      Persistence.createEntityManagerFactory("ParserPU", properties);
 
     if (dropAndCreateTables) {
       emf.getMetamodel().getEntities().forEach(
@@ -38,6 +40,57 @@ public class EMFactory {
     return emf.createEntityManager();
   }
 
+  /*
+    The lookup columns of the service queries are indexed by the parser
+    after the last file has been parsed, so a full parse loads the tables
+    without updating indexes on every inserted row. The statements are
+    idempotent, so databases created before the indexes were introduced get
+    them on their next parse.
+  */
+  public void createIndexes() {
+    Stream<JavaIndex> indexes = Arrays.stream(JavaIndex.values());
+
+    // SQLite has a single writer, so there the indexes are built one by one
+    if (isPostgreSQL()) {
+      indexes = indexes.parallel();
+    }
+
+    indexes.forEach(this::createIndex);
+  }
+
+  public Connection createConnection() throws SQLException {
+    return DriverManager.getConnection(
+      (String) properties.get(JDBC_URL),
+      (String) properties.get(JDBC_USER),
+      (String) properties.get(JDBC_PASSWORD)
+    );
+  }
+
+  public boolean isPostgreSQL() {
+    return properties.get(JDBC_DRIVER).equals("org.postgresql.Driver");
+  }
+
+  private void createIndex(JavaIndex index) {
+    EntityManager em = emf.createEntityManager();
+
+    LOGGER.log(
+      Level.INFO,
+      String.join(" ", "Creating index", index.getIndexName())
+    );
+
+    try {
+      em.getTransaction().begin();
+      em.createNativeQuery(index.getCreateSql()).executeUpdate();
+      em.getTransaction().commit();
+    } finally {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+
+      em.close();
+    }
+  }
+
   private HashMap<String, Object> initProperties(
     String rawDbContext, boolean dropAndCreateTables)
   {
@@ -82,9 +135,23 @@ public class EMFactory {
     properties.put(JDBC_DRIVER, driver);
     properties.put(JDBC_URL, connString);
 
+    String jdbcBatchSize = System.getProperty("jdbcBatchSize");
+
+    if (jdbcBatchSize != null) {
+      properties.put(BATCH_WRITING, "JDBC");
+      properties.put(BATCH_WRITING_SIZE, jdbcBatchSize);
+    }
+
     if (!isSqlite) {
       properties.put(JDBC_USER, contextMap.get("user"));
       properties.put(JDBC_PASSWORD, contextMap.get("password"));
+
+      /*
+        Id ranges are reserved on their own connection, so the row of the
+        JavaIdSequence table is not locked until a whole file is committed.
+        SQLite has a single writer, so there it stays in the transaction.
+      */
+      properties.put("eclipselink.jdbc.sequence-connection-pool", "true");
     }
 
     return properties;
@@ -7,9 +7,215 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "\"JavaAstNode\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaAstNode.byId",
+    query = "SELECT n FROM JavaAstNode n WHERE n.id = :id"),
+  @NamedQuery(
+    name = "JavaAstNode.byIds",
+    query = "SELECT n FROM JavaAstNode n WHERE n.id IN :ids"),
+  @NamedQuery(
+    name = "JavaAstNode.byEntityHash",
+    query = "SELECT n FROM JavaAstNode n WHERE n.entityHash = :entityHash"),
+  @NamedQuery(
+    name = "JavaAstNode.byEntityHashAndAstTypes",
+    query =
+      "SELECT n FROM JavaAstNode n " +
+      "WHERE n.entityHash = :entityHash AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.byEntityHashesAndAstTypes",
+    query =
+      "SELECT n FROM JavaAstNode n " +
+      "WHERE n.entityHash IN :entityHashes AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.byDefEntityHashAndAstTypes",
+    query =
+      "SELECT n FROM JavaAstNode n " +
+      "WHERE n.defEntityHash = :defEntityHash AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.visibleByEntityHashAndAstType",
+    query =
+      "SELECT n FROM JavaAstNode n " +
+      "WHERE n.entityHash = :entityHash AND n.astType = :astType " +
+      "AND n.visibleInSourceCode = TRUE"),
+  @NamedQuery(
+    name = "JavaAstNode.inFile",
+    query = "SELECT n FROM JavaAstNode n WHERE n.location_file = :file"),
+  @NamedQuery(
+    name = "JavaAstNode.inFileBySymbolType",
+    query =
+      "SELECT n FROM JavaAstNode n " +
+      "WHERE n.location_file = :file AND n.symbolType = :symbolType"),
+  @NamedQuery(
+    name = "JavaAstNode.inFileBySymbolTypeAndAstTypes",
+    query =
+      "SELECT n FROM JavaAstNode n " +
+      "WHERE n.location_file = :file AND n.symbolType = :symbolType " +
+      "AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.headerById",
+    query =
+      "SELECT NEW model.JavaAstNode(n.id, " +
+      "n.location_range_start_line, n.location_range_start_column, " +
+      "n.location_range_end_line, n.location_range_end_column, " +
+      "n.location_file, n.entityHash, n.defEntityHash, n.symbolType, " +
+      "n.astType, n.visibleInSourceCode) " +
+      "FROM JavaAstNode n WHERE n.id = :id"),
+  @NamedQuery(
+    name = "JavaAstNode.valueById",
+    query = "SELECT n.astValue FROM JavaAstNode n WHERE n.id = :id"),
+  @NamedQuery(
+    name = "JavaAstNode.valuesByIds",
+    query = "SELECT n.id, n.astValue FROM JavaAstNode n WHERE n.id IN :ids"),
+  @NamedQuery(
+    name = "JavaAstNode.headersInFile",
+    query =
+      "SELECT NEW model.JavaAstNode(n.id, " +
+      "n.location_range_start_line, n.location_range_start_column, " +
+      "n.location_range_end_line, n.location_range_end_column, " +
+      "n.location_file, n.entityHash, n.defEntityHash, n.symbolType, " +
+      "n.astType, n.visibleInSourceCode) " +
+      "FROM JavaAstNode n WHERE n.location_file = :file"),
+  @NamedQuery(
+    name = "JavaAstNode.headersByEntityHashesAndAstTypes",
+    query =
+      "SELECT NEW model.JavaAstNode(n.id, " +
+      "n.location_range_start_line, n.location_range_start_column, " +
+      "n.location_range_end_line, n.location_range_end_column, " +
+      "n.location_file, n.entityHash, n.defEntityHash, n.symbolType, " +
+      "n.astType, n.visibleInSourceCode) " +
+      "FROM JavaAstNode n " +
+      "WHERE n.entityHash IN :entityHashes AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.headersByDefEntityHashesAndAstTypes",
+    query =
+      "SELECT NEW model.JavaAstNode(n.id, " +
+      "n.location_range_start_line, n.location_range_start_column, " +
+      "n.location_range_end_line, n.location_range_end_column, " +
+      "n.location_file, n.entityHash, n.defEntityHash, n.symbolType, " +
+      "n.astType, n.visibleInSourceCode) " +
+      "FROM JavaAstNode n " +
+      "WHERE n.defEntityHash IN :defEntityHashes " +
+      "AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.headersInFilesBySymbolTypesAndAstType",
+    query =
+      "SELECT NEW model.JavaAstNode(n.id, " +
+      "n.location_range_start_line, n.location_range_start_column, " +
+      "n.location_range_end_line, n.location_range_end_column, " +
+      "n.location_file, n.entityHash, n.defEntityHash, n.symbolType, " +
+      "n.astType, n.visibleInSourceCode) " +
+      "FROM JavaAstNode n " +
+      "WHERE n.location_file IN :files AND n.symbolType IN :symbolTypes " +
+      "AND n.astType = :astType"),
+  @NamedQuery(
+    name = "JavaAstNode.rangesByFileRange",
+    query =
+      "SELECT n.location_range_start_line, n.location_range_start_column, " +
+      "n.location_range_end_line, n.location_range_end_column, " +
+      "n.symbolType, n.astType " +
+      "FROM JavaAstNode n WHERE n.location_file = :file " +
+      "AND n.location_range_start_line >= :startLine " +
+      "AND n.location_range_end_line < :endLine " +
+      "AND n.location_range_end_line <> -1 " +
+      "AND n.visibleInSourceCode = TRUE " +
+      "ORDER BY n.location_range_start_line, n.location_range_start_column"),
+  @NamedQuery(
+    name = "JavaAstNode.enclosedNodes",
+    query =
+      "SELECT n FROM JavaAstNode n WHERE n.astType = :astType " +
+      "AND n.symbolType IN :symbolTypes AND n.location_file = :file " +
+      "AND ((n.location_range_start_line = :startLine " +
+      "AND n.location_range_start_column >= :startColumn) " +
+      "OR n.location_range_start_line > :startLine) " +
+      "AND ((n.location_range_end_line = :endLine " +
+      "AND n.location_range_end_column <= :endColumn) " +
+      "OR n.location_range_end_line < :endLine)"),
+  @NamedQuery(
+    name = "JavaAstNode.countByEntityHashAndAstTypes",
+    query =
+      "SELECT COUNT(n) FROM JavaAstNode n " +
+      "WHERE n.entityHash = :entityHash AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.countByDefEntityHashAndAstTypes",
+    query =
+      "SELECT COUNT(n) FROM JavaAstNode n " +
+      "WHERE n.defEntityHash = :defEntityHash AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.countVisibleByEntityHashAndAstType",
+    query =
+      "SELECT COUNT(n) FROM JavaAstNode n " +
+      "WHERE n.entityHash = :entityHash AND n.astType = :astType " +
+      "AND n.visibleInSourceCode = TRUE"),
+  @NamedQuery(
+    name = "JavaAstNode.countInFileBySymbolType",
+    query =
+      "SELECT COUNT(n) FROM JavaAstNode n " +
+      "WHERE n.location_file = :file AND n.symbolType = :symbolType"),
+  @NamedQuery(
+    name = "JavaAstNode.countInFileBySymbolTypeAndAstTypes",
+    query =
+      "SELECT COUNT(n) FROM JavaAstNode n " +
+      "WHERE n.location_file = :file AND n.symbolType = :symbolType " +
+      "AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaAstNode.countEnclosedNodes",
+    query =
+      "SELECT COUNT(n) FROM JavaAstNode n WHERE n.astType = :astType " +
+      "AND n.symbolType IN :symbolTypes AND n.location_file = :file " +
+      "AND ((n.location_range_start_line = :startLine " +
+      "AND n.location_range_start_column >= :startColumn) " +
+      "OR n.location_range_start_line > :startLine) " +
+      "AND ((n.location_range_end_line = :endLine " +
+      "AND n.location_range_end_column <= :endColumn) " +
+      "OR n.location_range_end_line < :endLine)"),
+  @NamedQuery(
+    name = "JavaAstNode.countDefinitionsOfEnclosedNodes",
+    query =
+      "SELECT COUNT(d) FROM JavaAstNode n, JavaAstNode d " +
+      "WHERE n.astType = :astType " +
+      "AND n.symbolType IN :symbolTypes AND n.location_file = :file " +
+      "AND ((n.location_range_start_line = :startLine " +
+      "AND n.location_range_start_column >= :startColumn) " +
+      "OR n.location_range_start_line > :startLine) " +
+      "AND ((n.location_range_end_line = :endLine " +
+      "AND n.location_range_end_column <= :endColumn) " +
+      "OR n.location_range_end_line < :endLine) " +
+      "AND d.entityHash = n.defEntityHash AND d.astType = :definitionType"),
+  @NamedQuery(
+    name = "JavaAstNode.countCallersByDefEntityHash",
+    query =
+      "SELECT COUNT(DISTINCT u) FROM JavaAstNode u, JavaAstNode d " +
+      "WHERE u.defEntityHash = :entityHash AND " + JavaAstNode.CALLER_JOIN),
+  @NamedQuery(
+    name = "JavaAstNode.countCallersByEntityHash",
+    query =
+      "SELECT COUNT(DISTINCT u) FROM JavaAstNode u, JavaAstNode d " +
+      "WHERE u.entityHash = :entityHash AND " + JavaAstNode.CALLER_JOIN)
+})
 public class JavaAstNode {
+  /*
+    Joins the usages u to the method and constructor definitions d enclosing
+    them, the same containment as the one used to find the callers in
+    memory.
+  */
+  static final String CALLER_JOIN =
+    "u.astType IN :astTypes AND d.location_file = u.location_file " +
+    "AND d.symbolType IN :symbolTypes AND d.astType = :definitionType " +
+    "AND ((d.location_range_start_line = u.location_range_start_line " +
+    "AND d.location_range_start_column <= u.location_range_start_column) " +
+    "OR d.location_range_start_line < u.location_range_start_line) " +
+    "AND ((d.location_range_end_line = u.location_range_end_line " +
+    "AND d.location_range_end_column > u.location_range_end_column) " +
+    "OR d.location_range_end_line > u.location_range_end_line)";
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaAstNodeId")
+  @TableGenerator(
+    name = "JavaAstNodeId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaAstNode", allocationSize = 10000)
   @Column(name = "id")
   private long id;
 
@@ -49,6 +255,35 @@ public class JavaAstNode {
   @Column(name = "\"visibleInSourceCode\"")
   private boolean visibleInSourceCode;
 
+  public JavaAstNode() {
+  }
+
+  /*
+    Navigation queries select every column but astValue into this
+    constructor, see the "header" named queries. astValue holds the source
+    text of the node, for a type the whole type body, so it is read only
+    for the nodes returned to the client.
+  */
+  public JavaAstNode(
+    long id,
+    long location_range_start_line, long location_range_start_column,
+    long location_range_end_line, long location_range_end_column,
+    long location_file, long entityHash, long defEntityHash,
+    SymbolType symbolType, AstType astType, boolean visibleInSourceCode)
+  {
+    this.id = id;
+    this.location_range_start_line = location_range_start_line;
+    this.location_range_start_column = location_range_start_column;
+    this.location_range_end_line = location_range_end_line;
+    this.location_range_end_column = location_range_end_column;
+    this.location_file = location_file;
+    this.entityHash = entityHash;
+    this.defEntityHash = defEntityHash;
+    this.symbolType = symbolType;
+    this.astType = astType;
+    this.visibleInSourceCode = visibleInSourceCode;
+  }
+
 
   // Getters and setters
 
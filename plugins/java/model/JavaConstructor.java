@@ -6,6 +6,11 @@ import java.util.Set;
 
 @Entity
 @Table(name = "\"JavaConstructor\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaConstructor.byEntityHash",
+    query = "SELECT e FROM JavaConstructor e WHERE e.entityHash = :entityHash")
+})
 public class JavaConstructor extends JavaEntity {
   @ManyToMany(cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
   @JoinTable(
@@ -4,9 +4,21 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "\"JavaDocComment\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaDocComment.byEntityHash",
+    query =
+      "SELECT d FROM JavaDocComment d " +
+      "WHERE d.entityHash = :entityHash")
+})
 public class JavaDocComment {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaDocCommentId")
+  @TableGenerator(
+    name = "JavaDocCommentId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaDocComment", allocationSize = 10000)
   @Column(name = "id")
   private int id;
 
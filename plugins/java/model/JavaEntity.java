@@ -6,6 +6,16 @@ import static javax.persistence.InheritanceType.JOINED;
 
 @Entity
 @Table(name = "\"JavaEntity\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaEntity.byAstNodeId",
+    query = "SELECT e FROM JavaEntity e WHERE e.astNodeId = :astNodeId"),
+  @NamedQuery(
+    name = "JavaEntity.namesByEntityHashes",
+    query =
+      "SELECT e.entityHash, e.name FROM JavaEntity e " +
+      "WHERE e.entityHash IN :entityHashes")
+})
 @DiscriminatorColumn(
         name = "typeid",
         discriminatorType = DiscriminatorType.STRING
@@ -13,7 +23,12 @@ import static javax.persistence.InheritanceType.JOINED;
 @Inheritance(strategy = JOINED)
 public abstract class JavaEntity {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaEntityId")
+  @TableGenerator(
+    name = "JavaEntityId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaEntity", allocationSize = 10000)
   @Column(name = "id")
   private long id;
 
@@ -6,6 +6,11 @@ import java.util.Set;
 
 @Entity
 @Table(name = "\"JavaEnum\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaEnum.byEntityHash",
+    query = "SELECT e FROM JavaEnum e WHERE e.entityHash = :entityHash")
+})
 public class JavaEnum extends JavaEntity {
   @ManyToMany(cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
   @JoinTable(
@@ -6,6 +6,11 @@ import java.util.Set;
 
 @Entity
 @Table(name = "\"JavaEnumConstant\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaEnumConstant.byEntityHash",
+    query = "SELECT e FROM JavaEnumConstant e WHERE e.entityHash = :entityHash")
+})
 public class JavaEnumConstant extends JavaEntity {
   @Column(name = "value")
   private int value;
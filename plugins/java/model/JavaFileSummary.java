@@ -0,0 +1,120 @@
+package model;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "\"JavaFileSummary\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaFileSummary.byId",
+    query = "SELECT s FROM JavaFileSummary s WHERE s.id = :id")
+})
+public class JavaFileSummary {
+  // The id is the id of the summarized file, set by the parser
+  @Id
+  @Column(name = "id")
+  private long id;
+
+  @Column(name = "\"importCount\"")
+  private int importCount;
+
+  @Column(name = "\"typeCount\"")
+  private int typeCount;
+
+  @Column(name = "\"constructorCount\"")
+  private int constructorCount;
+
+  @Column(name = "\"methodCount\"")
+  private int methodCount;
+
+  // The AST node ids of a category are stored as a comma separated list
+  @Lob
+  @Column(name = "\"importNodes\"")
+  private String importNodes;
+
+  @Lob
+  @Column(name = "\"typeNodes\"")
+  private String typeNodes;
+
+  @Lob
+  @Column(name = "\"constructorNodes\"")
+  private String constructorNodes;
+
+  @Lob
+  @Column(name = "\"methodNodes\"")
+  private String methodNodes;
+
+  // Getters and setters
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public int getImportCount() {
+    return importCount;
+  }
+
+  public void setImportCount(int importCount) {
+    this.importCount = importCount;
+  }
+
+  public int getTypeCount() {
+    return typeCount;
+  }
+
+  public void setTypeCount(int typeCount) {
+    this.typeCount = typeCount;
+  }
+
+  public int getConstructorCount() {
+    return constructorCount;
+  }
+
+  public void setConstructorCount(int constructorCount) {
+    this.constructorCount = constructorCount;
+  }
+
+  public int getMethodCount() {
+    return methodCount;
+  }
+
+  public void setMethodCount(int methodCount) {
+    this.methodCount = methodCount;
+  }
+
+  public String getImportNodes() {
+    return importNodes;
+  }
+
+  public void setImportNodes(String importNodes) {
+    this.importNodes = importNodes;
+  }
+
+  public String getTypeNodes() {
+    return typeNodes;
+  }
+
+  public void setTypeNodes(String typeNodes) {
+    this.typeNodes = typeNodes;
+  }
+
+  public String getConstructorNodes() {
+    return constructorNodes;
+  }
+
+  public void setConstructorNodes(String constructorNodes) {
+    this.constructorNodes = constructorNodes;
+  }
+
+  public String getMethodNodes() {
+    return methodNodes;
+  }
+
+  public void setMethodNodes(String methodNodes) {
+    this.methodNodes = methodNodes;
+  }
+}
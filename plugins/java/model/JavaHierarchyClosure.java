@@ -0,0 +1,97 @@
+package model;
+
+import model.enums.ClosureKind;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "\"JavaHierarchyClosure\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaHierarchyClosure.baseNodes",
+    query =
+      "SELECT n FROM JavaHierarchyClosure c, JavaAstNode n " +
+      "WHERE c.derived = :entityHash AND c.kind = :kind " +
+      "AND n.entityHash = c.base AND n.astType IN :astTypes " +
+      "ORDER BY c.depth"),
+  @NamedQuery(
+    name = "JavaHierarchyClosure.derivedNodes",
+    query =
+      "SELECT n FROM JavaHierarchyClosure c, JavaAstNode n " +
+      "WHERE c.base = :entityHash AND c.kind = :kind " +
+      "AND n.entityHash = c.derived AND n.astType IN :astTypes " +
+      "ORDER BY c.depth"),
+  @NamedQuery(
+    name = "JavaHierarchyClosure.countBaseNodes",
+    query =
+      "SELECT COUNT(n) FROM JavaHierarchyClosure c, JavaAstNode n " +
+      "WHERE c.derived = :entityHash AND c.kind = :kind " +
+      "AND n.entityHash = c.base AND n.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaHierarchyClosure.countDerivedNodes",
+    query =
+      "SELECT COUNT(n) FROM JavaHierarchyClosure c, JavaAstNode n " +
+      "WHERE c.base = :entityHash AND c.kind = :kind " +
+      "AND n.entityHash = c.derived AND n.astType IN :astTypes")
+})
+public class JavaHierarchyClosure {
+  // The rows are inserted by the parser at once, see HierarchyClosureBuilder
+  @Id
+  @Column(name = "id")
+  private long id;
+
+  @Column(name = "base")
+  private long base;
+
+  @Column(name = "derived")
+  private long derived;
+
+  @Column(name = "depth")
+  private int depth;
+
+  @Column(name = "\"kind\"")
+  @Enumerated(EnumType.ORDINAL)
+  private ClosureKind kind;
+
+  // Getters and setters
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public long getBase() {
+    return base;
+  }
+
+  public void setBase(long base) {
+    this.base = base;
+  }
+
+  public long getDerived() {
+    return derived;
+  }
+
+  public void setDerived(long derived) {
+    this.derived = derived;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public void setDepth(int depth) {
+    this.depth = depth;
+  }
+
+  public ClosureKind getKind() {
+    return kind;
+  }
+
+  public void setKind(ClosureKind kind) {
+    this.kind = kind;
+  }
+}
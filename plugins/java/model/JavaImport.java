@@ -6,7 +6,12 @@ import javax.persistence.*;
 @Table(name = "\"JavaImport\"")
 public class JavaImport {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaImportId")
+  @TableGenerator(
+    name = "JavaImportId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaImport", allocationSize = 10000)
   @Column(name = "id")
   private int id;
 
@@ -0,0 +1,38 @@
+package model;
+
+public enum JavaIndex {
+  AST_NODE_LOCATION(
+    "JavaAstNode", "location_file",
+    "location_range_start_line", "location_range_end_line"),
+  AST_NODE_ENTITY_HASH("JavaAstNode", "\"entityHash\""),
+  AST_NODE_DEF_ENTITY_HASH("JavaAstNode", "\"defEntityHash\""),
+  ENTITY_AST_NODE_ID("JavaEntity", "\"astNodeId\""),
+  ENTITY_ENTITY_HASH("JavaEntity", "\"entityHash\""),
+  MEMBER_TYPE_TYPE_HASH("JavaMemberType", "\"typeHash\""),
+  MEMBER_TYPE_MEMBER_AST_NODE("JavaMemberType", "\"memberAstNode\""),
+  RELATION_LHS("JavaRelation", "lhs", "\"kind\""),
+  RELATION_RHS("JavaRelation", "rhs", "\"kind\""),
+  INHERITANCE_BASE("JavaInheritance", "base"),
+  INHERITANCE_DERIVED("JavaInheritance", "derived"),
+  DOC_COMMENT_ENTITY_HASH("JavaDocComment", "\"entityHash\""),
+  HIERARCHY_CLOSURE_BASE("JavaHierarchyClosure", "base", "\"kind\""),
+  HIERARCHY_CLOSURE_DERIVED("JavaHierarchyClosure", "derived", "\"kind\"");
+
+  private final String table;
+  private final String[] columns;
+
+  JavaIndex(String table, String... columns) {
+    this.table = table;
+    this.columns = columns;
+  }
+
+  public String getIndexName() {
+    return "\"" + table + "_" + name().toLowerCase() + "\"";
+  }
+
+  public String getCreateSql() {
+    return
+      "CREATE INDEX IF NOT EXISTS " + getIndexName() +
+        " ON \"" + table + "\" (" + String.join(", ", columns) + ")";
+  }
+}
@@ -4,9 +4,24 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "\"JavaInheritance\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaInheritance.byBase",
+    query = "SELECT i FROM JavaInheritance i WHERE i.base = :entityHash"),
+  @NamedQuery(
+    name = "JavaInheritance.byDerived",
+    query =
+      "SELECT i FROM JavaInheritance i " +
+      "WHERE i.derived = :entityHash")
+})
 public class JavaInheritance {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaInheritanceId")
+  @TableGenerator(
+    name = "JavaInheritanceId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaInheritance", allocationSize = 10000)
   @Column(name = "id")
   private long id;
 
@@ -8,6 +8,20 @@ import java.util.Set;
 
 @Entity
 @Table(name = "\"JavaInitializer\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaInitializer.byEntityHash",
+    query = "SELECT i FROM JavaInitializer i WHERE i.entityHash = :entityHash"),
+  @NamedQuery(
+    name = "JavaInitializer.byTypeHash",
+    query = "SELECT i FROM JavaInitializer i WHERE i.typeHash = :typeHash"),
+  @NamedQuery(
+    name = "JavaInitializer.countDefinitionsByTypeHash",
+    query =
+      "SELECT COUNT(n) FROM JavaInitializer i, JavaAstNode n " +
+      "WHERE i.typeHash = :typeHash AND n.entityHash = i.entityHash " +
+      "AND n.astType = :astType")
+})
 public class JavaInitializer extends JavaEntity {
   @Column(name = "\"kind\"")
   private InitializerKind kind;
@@ -7,9 +7,45 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "\"JavaMemberType\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaMemberType.byTypeHashAndKinds",
+    query =
+      "SELECT m FROM JavaMemberType m " +
+      "WHERE m.typeHash = :typeHash AND m.kind IN :kinds"),
+  @NamedQuery(
+    name = "JavaMemberType.byTypeHashAndKindsWithOtherHash",
+    query =
+      "SELECT m FROM JavaMemberType m " +
+      "WHERE m.typeHash = :typeHash AND m.kind IN :kinds " +
+      "AND m.memberTypeHash <> m.typeHash"),
+  @NamedQuery(
+    name = "JavaMemberType.byMemberAstNodes",
+    query =
+      "SELECT m FROM JavaMemberType m " +
+      "WHERE m.memberAstNode.id IN :memberAstNodeIds"),
+  @NamedQuery(
+    name = "JavaMemberType.countByTypeHashAndKinds",
+    query =
+      "SELECT COUNT(m) FROM JavaMemberType m " +
+      "WHERE m.typeHash = :typeHash AND m.kind IN :kinds " +
+      "AND m.memberAstNode.astType IN :astTypes"),
+  @NamedQuery(
+    name = "JavaMemberType.countByTypeHashAndKindsWithOtherHash",
+    query =
+      "SELECT COUNT(m) FROM JavaMemberType m " +
+      "WHERE m.typeHash = :typeHash AND m.kind IN :kinds " +
+      "AND m.memberTypeHash <> m.typeHash " +
+      "AND m.memberAstNode.astType IN :astTypes")
+})
 public class JavaMemberType {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaMemberTypeId")
+  @TableGenerator(
+    name = "JavaMemberTypeId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaMemberType", allocationSize = 10000)
   @Column(name = "id")
   private int id;
 
@@ -6,6 +6,11 @@ import java.util.Set;
 
 @Entity
 @Table(name = "\"JavaMethod\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaMethod.byEntityHash",
+    query = "SELECT e FROM JavaMethod e WHERE e.entityHash = :entityHash")
+})
 public class JavaMethod extends JavaTypedEntity {
   @ManyToMany(cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
   @JoinTable(
@@ -0,0 +1,59 @@
+package model;
+
+import javax.persistence.*;
+import java.util.List;
+
+/*
+  Generation of the Java tables, the single row of its own table. It is the
+  time the last parse finished, so it changes even if a full parse
+  recreated the tables. The service drops what it has cached from an
+  earlier generation.
+*/
+@Entity
+@Table(name = "\"JavaParseGeneration\"")
+public class JavaParseGeneration {
+  private static final long ID = 1;
+
+  @Id
+  @Column(name = "id")
+  private long id;
+
+  @Column(name = "generation")
+  private long generation;
+
+  public static void update(EntityManager em) {
+    JavaParseGeneration parseGeneration = new JavaParseGeneration();
+
+    parseGeneration.setId(ID);
+    parseGeneration.setGeneration(System.currentTimeMillis());
+    em.merge(parseGeneration);
+  }
+
+  // Read natively, so the shared cache of the service is bypassed
+  public static long get(EntityManager em) {
+    List<?> values = em.createNativeQuery(
+      "SELECT generation FROM \"JavaParseGeneration\" WHERE id = ?1")
+      .setParameter(1, ID)
+      .getResultList();
+
+    return values.isEmpty() ? 0 : ((Number) values.get(0)).longValue();
+  }
+
+  // Getters and setters
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public long getGeneration() {
+    return generation;
+  }
+
+  public void setGeneration(long generation) {
+    this.generation = generation;
+  }
+}
@@ -2,10 +2,17 @@ package model;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 @Entity
 @Table(name = "\"JavaRecord\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaRecord.byEntityHash",
+    query = "SELECT e FROM JavaRecord e WHERE e.entityHash = :entityHash")
+})
 public class JavaRecord extends JavaEntity {
   @Column(name = "\"isAbstract\"")
   private boolean isAbstract;
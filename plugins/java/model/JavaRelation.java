@@ -6,9 +6,22 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "\"JavaRelation\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaRelation.byLhs",
+    query = "SELECT r FROM JavaRelation r WHERE r.lhs = :entityHash"),
+  @NamedQuery(
+    name = "JavaRelation.byRhs",
+    query = "SELECT r FROM JavaRelation r WHERE r.rhs = :entityHash")
+})
 public class JavaRelation {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+    strategy = GenerationType.TABLE, generator = "JavaRelationId")
+  @TableGenerator(
+    name = "JavaRelationId", table = "\"JavaIdSequence\"",
+    pkColumnName = "name", valueColumnName = "value",
+    pkColumnValue = "JavaRelation", allocationSize = 10000)
   @Column(name = "id")
   private int id;
 
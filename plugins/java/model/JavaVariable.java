@@ -2,12 +2,24 @@ package model;
 
 import javax.persistence.Entity;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "\"JavaVariable\"")
+@NamedQueries({
+  @NamedQuery(
+    name = "JavaVariable.byEntityHash",
+    query = "SELECT e FROM JavaVariable e WHERE e.entityHash = :entityHash"),
+  @NamedQuery(
+    name = "JavaVariable.typesByEntityHashes",
+    query =
+      "SELECT e.entityHash, e.typeHash FROM JavaVariable e " +
+      "WHERE e.entityHash IN :entityHashes")
+})
 public class JavaVariable extends JavaTypedEntity {
   @ManyToMany(mappedBy = "javaMetVarParams")
   Set<JavaMethod> javaMethodParams = new HashSet<>();
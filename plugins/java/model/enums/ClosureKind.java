@@ -0,0 +1,8 @@
+package model.enums;
+
+// The first constants are the relation kinds, in the order of RelationKind
+public enum ClosureKind {
+  OVERRIDE,
+  IMPLEMENT,
+  INHERITANCE
+}
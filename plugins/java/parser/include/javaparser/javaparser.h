@@ -23,6 +23,7 @@
 
 #include <iostream>
 #include <chrono>
+#include <unordered_set>
 
 namespace cc
 {
@@ -57,9 +58,40 @@ public:
     _service -> parseFile(return_, compileCommand_, fileId_, fileCounterStr_);
   }
 
-  void decompileClass(
-    std::string& return_, const std::string& path_) override {
-    _service -> decompileClass(return_, path_);
+  void parseFiles(
+    std::vector<ParseResult>& return_,
+    const std::vector<CompileCommand>& compileCommands_,
+    const std::vector<int64_t>& fileIds_,
+    const std::vector<std::string>& fileCounterStrs_) override
+  {
+    _service -> parseFiles(
+      return_, compileCommands_, fileIds_, fileCounterStrs_);
+  }
+
+  void decompileJar(
+    std::vector<std::string>& return_,
+    const std::string& jarPath_, const std::string& outputDir_) override
+  {
+    _service -> decompileJar(return_, jarPath_, outputDir_);
+  }
+
+  void getDependentFileIds(
+    std::vector<int64_t>& return_,
+    const std::vector<int64_t>& fileIds_) override
+  {
+    _service -> getDependentFileIds(return_, fileIds_);
+  }
+
+  void cleanupFiles(const std::vector<int64_t>& fileIds_) override {
+    _service -> cleanupFiles(fileIds_);
+  }
+
+  void buildIndexes() override {
+    _service -> buildIndexes();
+  }
+
+  void buildHierarchyClosure() override {
+    _service -> buildHierarchyClosure();
   }
 
   /**
@@ -157,70 +189,76 @@ private:
 
 class JavaParser : public AbstractParser {
 public:
+
   JavaParser(ParserContext& ctx_);
 
   virtual ~JavaParser();
 
+  virtual void markModifiedFiles() override;
+
+  virtual bool cleanupDatabase() override;
+
   virtual bool parse() override;
 
 private:
   /**
-   * A single build command's cc::util::JobQueueThreadPool job.
+   * A batch of build commands as a cc::util::JobQueueThreadPool job.
    */
   struct ParseJob
   {
     /**
-     * The build command itself.
-     * This is given to a free worker in JavaParser::_javaServiceHandlers.
+     * The build commands themselves, parsed together by a free worker in
+     * JavaParser::_javaServiceHandlers.
      */
-    const CompileCommand command;
+    const std::vector<CompileCommand> commands;
 
     /**
-     * The # of the build command in the compilation command database.
+     * The # of the first build command in the compilation command database.
      */
     std::size_t index;
 
-    ParseJob(const CompileCommand command, std::size_t index)
-      : command(command), index(index)
+    ParseJob(const std::vector<CompileCommand> commands, std::size_t index)
+      : commands(commands), index(index)
     {}
 
     ParseJob(const ParseJob&) = default;
   };
 
-  /**
- * A single Java class file's cc::util::JobQueueThreadPool job.
- */
-  struct DecompileJob
-  {
-    /**
-     * The path to the Java class file.
-     * This is given to a free worker in JavaParser::_javaServiceHandlers.
-     */
-    const std::string path;
-
-    DecompileJob(const std::string& path) : path(path)
-    {}
-
-    DecompileJob(const DecompileJob&) = default;
-  };
-
   fs::path _java_path;
   fs::path _unzip_path;
   pr::child _c;
   std::function<void(ParseJob&)> make_parse_pool;
   int _numCompileCommands;
   int _threadNum;
+  bool _incremental;
+  std::unordered_set<std::uint64_t> _parsedCommandHashes;
   std::vector<std::shared_ptr<JavaParserServiceHandler>> _javaServiceHandlers;
 
+  /**
+   * Name of the file in the directory of the sources decompiled from a jar
+   * which stores the SHA-1 hash of the decompiled version of the jar.
+   */
+  static constexpr const char* JAR_HASH_FILE = ".jar-hash";
+
   bool acceptCompileCommands(const std::string& path_);
 
   bool acceptJar(const std::string& path_);
 
-  bool acceptClass(const std::string& path_);
+  std::string getDecompileCacheDir();
+
+  void markByBuildActions();
+
+  void markByJarHashes();
 
-  bool rejectInnerClass(const std::string& path_);
+  fs::path getDecompiledRoot(const std::string& jarPath_);
 
-  void startAndConnectToJavaProcess();
+  std::string getJarHash(const std::string& jarPath_);
+
+  std::vector<int64_t> getChangedFileIds();
+
+  void removeParsedCommands(std::vector<CompileCommand>& commands_);
+
+  void startAndConnectToJavaProcess(bool incremental_);
 
   void initializeWorkers();
 
@@ -247,11 +285,33 @@ private:
     const std::vector<core::BuildLog>& buildLogs_,
     const std::string& file_);
 
+  void parseBatches(const std::vector<CompileCommand>& commands_);
+
+  std::vector<ParseResult> parseOneByOne(
+    JavaParserServiceHandler& handler_,
+    const std::vector<CompileCommand>& commands_,
+    const std::vector<int64_t>& fileIds_,
+    const std::vector<std::string>& fileCounterStrs_);
+
+  void processParseResult(
+    const CompileCommand& command_, const ParseResult& parseResult_,
+    const std::string& fileCounterStr_);
+
   bool parseCompileCommands(const std::string& path_);
 
   bool parseJar(const std::string& path_);
 
-  std::vector<CompileCommand> decompileJar(const std::string& path_);
+  bool buildIndexes();
+
+  bool buildHierarchyClosure();
+
+  bool callFreeWorker(
+    const std::string& task_,
+    const std::function<void(JavaParserServiceHandler&)>& call_);
+
+  bool decompileJar(
+    const std::string& path_,
+    std::vector<CompileCommand>& commands_);
 };
 
 } // java
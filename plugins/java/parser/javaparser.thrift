@@ -25,7 +25,8 @@ struct ParseResult
 {
   1: CmdArgs cmdArgs,
   2: list<project.BuildLog> buildLogs,
-  3: bool errorDueParsing
+  3: bool errorDueParsing,
+  4: optional string errorBeforeParsing
 }
 
 exception JavaBeforeParseException
@@ -43,5 +44,13 @@ service JavaParserService
   ParseResult parseFile(
     1: CompileCommand compileCommand, 2: i64 fileId, 3: string fileCounterStr)
     throws (1: JavaBeforeParseException jbe),
-  string decompileClass(1: string path) throws (1: ClassDecompileException cde)
+  list<ParseResult> parseFiles(
+    1: list<CompileCommand> compileCommands, 2: list<i64> fileIds,
+    3: list<string> fileCounterStrs),
+  list<string> decompileJar(1: string jarPath, 2: string outputDir)
+    throws (1: ClassDecompileException cde),
+  list<i64> getDependentFileIds(1: list<i64> fileIds),
+  void cleanupFiles(1: list<i64> fileIds),
+  void buildIndexes(),
+  void buildHierarchyClosure()
 }
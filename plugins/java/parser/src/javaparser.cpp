@@ -1,3 +1,6 @@
+#include <algorithm>
+#include <fstream>
+#include <unordered_map>
 #include <unordered_set>
 
 #include <model/buildaction.h>
@@ -9,6 +12,7 @@
 #include <model/file.h>
 #include <model/file-odb.hxx>
 
+#include <util/hash.h>
 #include <util/logutil.h>
 #include <util/odbtransaction.h>
 #include <util/threadpool.h>
@@ -29,17 +33,18 @@ namespace java
 // Initialize static members
 std::stringstream JavaParserServiceHandler::thrift_ss;
 bool JavaParserServiceHandler::server_started = false;
+constexpr const char* JavaParser::JAR_HASH_FILE;
 
 JavaParser::JavaParser(ParserContext& ctx_) : AbstractParser(ctx_) {
   _java_path = pr::search_path("java");
   _unzip_path = pr::search_path("unzip");
   _threadNum = _ctx.options["jobs"].as<int>();
+  _incremental = false;
 
   //--- Create a thread pool to process commands ---//
 
   make_parse_pool =[this](ParseJob& job_)
     {
-      const CompileCommand command = job_.command;
       std::shared_ptr<JavaParserServiceHandler> serviceHandler;
 
       try {
@@ -47,53 +52,53 @@ JavaParser::JavaParser(ParserContext& ctx_) : AbstractParser(ctx_) {
       } catch (TimeoutException& ex) {
         LOG(error) <<
           "Operation timeout, could not find free "
-          "Java worker to process " << command.file << "!";
+          "Java worker to process " << job_.commands.front().file <<
+          " and " << job_.commands.size() - 1 << " other files!";
         return;
       }
 
-      std::string file_counter_str =
-        "(" + std::to_string(job_.index) + "/" +
-        std::to_string(_numCompileCommands) + ")";
+      std::vector<int64_t> fileIds;
+      std::vector<std::string> fileCounterStrs;
 
-      LOG(info) <<
-        file_counter_str << " " << "Parsing " << command.file;
+      for (std::size_t i = 0; i < job_.commands.size(); ++i) {
+        const CompileCommand& command = job_.commands[i];
+        std::string file_counter_str =
+          "(" + std::to_string(job_.index + i) + "/" +
+          std::to_string(_numCompileCommands) + ")";
 
-      model::FilePtr filePtr = _ctx.srcMgr.getFile(command.file);
-      filePtr -> type = "JAVA";
-      model::BuildActionPtr buildAction = addBuildAction(command);
-      model::File::ParseStatus parseStatus =
-        model::File::PSFullyParsed;
-      ParseResult parseResult;
+        LOG(info) <<
+          file_counter_str << " " << "Parsing " << command.file;
+
+        model::FilePtr filePtr = _ctx.srcMgr.getFile(command.file);
+        filePtr -> type = "JAVA";
+        fileIds.push_back(filePtr->id);
+        fileCounterStrs.push_back(file_counter_str);
+      }
+
+      std::vector<ParseResult> parseResults;
 
       //--- Run Java parser ---//
 
       try {
-        serviceHandler->parseFile(
-          parseResult, command, filePtr->id, file_counter_str);
-        parseStatus =
-          addBuildLogs(parseResult.buildLogs, command.file);
-
-        if (parseResult.errorDueParsing) {
-          LOG(warning) <<
-            file_counter_str << " " << "Parsing " <<
-            command.file << " had one or more errors during parsing";
-
-          if (parseStatus == model::File::ParseStatus::PSFullyParsed) {
-            parseStatus = model::File::ParseStatus::PSPartiallyParsed;
-          }
-        }
-
-        addCompileCommand(
-          parseResult.cmdArgs, buildAction, parseStatus);
+        serviceHandler->parseFiles(
+          parseResults, job_.commands, fileIds, fileCounterStrs);
+      } catch (apache::thrift::TException& ex) {
+        LOG(error) <<
+          "[javaparser] Failed to parse " << job_.commands.front().file <<
+          " and " << job_.commands.size() - 1 << " other files";
+        LOG(error) << ex.what();
 
-      } catch (JavaBeforeParseException& ex) {
-        LOG(warning) <<
-          file_counter_str << " " << "Parsing " <<
-          command.file << " has been failed before the start";
-        LOG(warning) << ex.message;
+        // The files of the batch are parsed one by one instead
+        parseResults = parseOneByOne(
+          *serviceHandler, job_.commands, fileIds, fileCounterStrs);
       }
 
       serviceHandler->setFree();
+
+      for (std::size_t i = 0; i < parseResults.size(); ++i) {
+        processParseResult(
+          job_.commands[i], parseResults[i], fileCounterStrs[i]);
+      }
     };
 
   for (int i = 0; i < _threadNum; ++i) {
@@ -113,20 +118,25 @@ bool JavaParser::acceptJar(const std::string& path_) {
   return ext == ".jar";
 }
 
-bool JavaParser::acceptClass(const std::string& path_) {
-  std::string ext = fs::extension(path_);
-  return ext == ".class";
-}
+std::string JavaParser::getDecompileCacheDir() {
+  if (_ctx.options.count("java-decompile-cache"))
+    return _ctx.options["java-decompile-cache"].as<std::string>();
 
-bool JavaParser::rejectInnerClass(const std::string& path_) {
-  std::string name = fs::basename(path_);
-  return name.find('$') == std::string::npos;
+  // The cache is shared by the projects of the workspace by default
+  fs::path workspace(_ctx.options["workspace"].as<std::string>());
+  return (workspace / ".java-decompile-cache").string();
 }
 
-void JavaParser::startAndConnectToJavaProcess() {
+void JavaParser::startAndConnectToJavaProcess(bool incremental_) {
   std::vector<std::string> _java_args{
     "-DrawDbContext=" + _ctx.options["database"].as<std::string>(),
+    "-DpgsqlCopy=" +
+      std::string(_ctx.options.count("java-pgsql-copy") ? "true" : "false"),
     "-DthreadNum=" + std::to_string(_threadNum),
+    "-Dincremental=" + std::string(incremental_ ? "true" : "false"),
+    "-DdecompileCacheDir=" + getDecompileCacheDir(),
+    "-DjdbcBatchSize=" +
+      std::to_string(_ctx.options["java-jdbc-batch-size"].as<int>()),
     "-jar",
     "../lib/java/javaparser.jar"
   };
@@ -358,9 +368,232 @@ model::File::ParseStatus JavaParser::addBuildLogs(
   return parseStatus;
 }
 
+void JavaParser::markModifiedFiles() {
+  // Without the files of an earlier parse there is nothing to update
+  if (_ctx.options.count("force") || _ctx.srcMgr.numberOfFiles() == 0) {
+    return;
+  }
+
+  markByBuildActions();
+  markByJarHashes();
+
+  std::vector<int64_t> fileIds = getChangedFileIds();
+  std::vector<int64_t> dependentFileIds;
+
+  if (fileIds.empty()) {
+    return;
+  }
+
+  // The server of the lookup keeps the tables of the earlier parse
+  startAndConnectToJavaProcess(true);
+
+  callFreeWorker(
+    "look up the dependents of the changed Java files",
+    [&](JavaParserServiceHandler& handler_)
+    {
+      handler_.getDependentFileIds(dependentFileIds, fileIds);
+    });
+
+  // If too many files have changed, the core forces a full parse after this
+  // point, which needs a server dropping the tables. So the server is not
+  // reused, cleanupDatabase() starts one when the parse stays incremental.
+  _c.terminate();
+
+  std::unordered_set<int64_t> dependentFileIdSet(
+    dependentFileIds.begin(), dependentFileIds.end());
+
+  auto isDependent = [&](model::FilePtr file_)
+    {
+      return dependentFileIdSet.count(file_->id) > 0;
+    };
+
+  for (const model::FilePtr& file : _ctx.srcMgr.getFiles(isDependent)) {
+    if (!_ctx.fileStatus.count(file->path)) {
+      _ctx.fileStatus.emplace(file->path, IncrementalStatus::MODIFIED);
+      LOG(debug) << "[javaparser] File modified: " << file->path;
+    }
+  }
+}
+
+void JavaParser::markByBuildActions() {
+  std::unordered_map<std::string, std::string> commands;
+
+  for (const std::string& path
+    : _ctx.options["input"].as<std::vector<std::string>>()) {
+    if (!acceptCompileCommands(path)) {
+      continue;
+    }
+
+    pt::ptree _pt;
+    pt::read_json(path, _pt);
+
+    for (pt::ptree::value_type &command_tree_: _pt) {
+      CompileCommand command = getCompileCommandFromJson(command_tree_);
+
+      if (fs::extension(command.file) == ".java") {
+        commands[command.file] = command.command;
+      }
+    }
+  }
+
+  // The rows of a file compiled by another command, e.g. with another
+  // classpath, may refer to symbols which are not visible to it anymore
+  util::OdbTransaction {_ctx.db} ([&] {
+    for (const model::BuildAction& ba : _ctx.db->query<model::BuildAction>())
+    {
+      for (auto buildSourceLazyPtr : ba.sources) {
+        auto buildSourcePtr = buildSourceLazyPtr.load();
+        const std::string& path = buildSourcePtr->file->path;
+        auto it = commands.find(path);
+
+        if (
+          it != commands.end() && it->second != ba.command &&
+          !_ctx.fileStatus.count(path))
+        {
+          _ctx.fileStatus.emplace(path, IncrementalStatus::ACTION_CHANGED);
+          LOG(debug) << "[javaparser] Build action for file changed: " << path;
+        }
+      }
+    }
+  });
+}
+
+void JavaParser::markByJarHashes() {
+  for (const std::string& path
+    : _ctx.options["input"].as<std::vector<std::string>>()) {
+    if (!acceptJar(path)) {
+      continue;
+    }
+
+    fs::path decompiledRoot = getDecompiledRoot(path);
+    std::string storedHash;
+    std::ifstream hashFile((decompiledRoot / JAR_HASH_FILE).string());
+
+    std::getline(hashFile, storedHash);
+
+    if (storedHash == getJarHash(path)) {
+      continue;
+    }
+
+    // The sources decompiled from another version of the jar are parsed
+    // again, the ones of removed classes lose their rows
+    std::string prefix = decompiledRoot.string() + '/';
+
+    auto isDecompiled = [&](model::FilePtr file_)
+      {
+        return
+          ba::starts_with(file_->path, prefix) &&
+          fs::extension(file_->path) == ".java";
+      };
+
+    for (const model::FilePtr& file : _ctx.srcMgr.getFiles(isDecompiled)) {
+      if (!_ctx.fileStatus.count(file->path)) {
+        _ctx.fileStatus.emplace(file->path, IncrementalStatus::MODIFIED);
+        LOG(debug) << "[javaparser] Jar of file changed: " << file->path;
+      }
+    }
+  }
+}
+
+fs::path JavaParser::getDecompiledRoot(const std::string& jarPath_) {
+  fs::path workspace(_ctx.options["workspace"].as<std::string>());
+  fs::path project(_ctx.options["name"].as<std::string>());
+
+  return workspace / project / fs::basename(jarPath_);
+}
+
+std::string JavaParser::getJarHash(const std::string& jarPath_) {
+  std::ifstream jarFile(jarPath_, std::ios::binary);
+  std::string content(
+    std::istreambuf_iterator<char>{jarFile},
+    std::istreambuf_iterator<char>{});
+
+  return util::sha1Hash(content);
+}
+
+std::vector<int64_t> JavaParser::getChangedFileIds() {
+  std::vector<int64_t> fileIds;
+
+  for (const auto& item : _ctx.fileStatus) {
+    if (
+      item.second != IncrementalStatus::ADDED &&
+      fs::extension(item.first) == ".java")
+    {
+      fileIds.push_back(_ctx.srcMgr.getFile(item.first)->id);
+    }
+  }
+
+  return fileIds;
+}
+
+bool JavaParser::cleanupDatabase() {
+  // The core cleans up only before an incremental parse
+  _incremental = _ctx.srcMgr.numberOfFiles() > 0;
+
+  std::vector<int64_t> fileIds = getChangedFileIds();
+
+  if (fileIds.empty()) {
+    return true;
+  }
+
+  if (!_c.running()) {
+    startAndConnectToJavaProcess(_incremental);
+  }
+
+  bool success = callFreeWorker(
+    "remove the rows of the changed Java files",
+    [&](JavaParserServiceHandler& handler_)
+    {
+      handler_.cleanupFiles(fileIds);
+    });
+
+  // Parsing the files again on top of their old rows would duplicate them,
+  // so the incremental parse is stopped
+  if (!success) {
+    return false;
+  }
+
+  // Without their build actions the changed files are parsed again
+  util::OdbTransaction {_ctx.db} ([&] {
+    for (int64_t fileId : fileIds) {
+      auto sources = _ctx.db->query<model::BuildSource>(
+        odb::query<model::BuildSource>::file == fileId);
+
+      for (const model::BuildSource& source : sources) {
+        _ctx.db->erase<model::BuildAction>(source.action->id);
+      }
+    }
+  });
+
+  return true;
+}
+
+void JavaParser::removeParsedCommands(
+  std::vector<CompileCommand>& commands_)
+{
+  // The rows of the unchanged files are kept from the earlier parse
+  commands_.erase(
+    std::remove_if(
+      commands_.begin(), commands_.end(),
+      [this](const CompileCommand& command_)
+      {
+        return _parsedCommandHashes.count(util::fnvHash(command_.command));
+      }),
+    commands_.end());
+}
+
 bool JavaParser::parse() {
   bool success = true;
 
+  if (_incremental) {
+    util::OdbTransaction {_ctx.db} ([&] {
+      // An action without sources is left behind by an interrupted parse
+      for (const model::BuildAction& ba : _ctx.db->query<model::BuildAction>())
+        if (!ba.sources.empty())
+          _parsedCommandHashes.insert(util::fnvHash(ba.command));
+    });
+  }
+
   for (const std::string& path
     : _ctx.options["input"].as<std::vector<std::string>>()) {
     if (acceptCompileCommands(path)) {
@@ -378,15 +611,72 @@ bool JavaParser::parse() {
     }
   }
 
+  if (_c.running() && !(buildIndexes() && buildHierarchyClosure())) {
+    success = false;
+  }
+
   return success;
 }
 
+std::vector<ParseResult> JavaParser::parseOneByOne(
+  JavaParserServiceHandler& handler_,
+  const std::vector<CompileCommand>& commands_,
+  const std::vector<int64_t>& fileIds_,
+  const std::vector<std::string>& fileCounterStrs_)
+{
+  std::vector<ParseResult> parseResults(commands_.size());
+
+  for (std::size_t i = 0; i < commands_.size(); ++i) {
+    try {
+      handler_.parseFile(
+        parseResults[i], commands_[i], fileIds_[i], fileCounterStrs_[i]);
+    } catch (JavaBeforeParseException& ex) {
+      parseResults[i].__set_errorBeforeParsing(ex.message);
+    } catch (apache::thrift::TException& ex) {
+      parseResults[i].__set_errorBeforeParsing(ex.what());
+    }
+  }
+
+  return parseResults;
+}
+
+void JavaParser::processParseResult(
+  const CompileCommand& command_, const ParseResult& parseResult_,
+  const std::string& fileCounterStr_)
+{
+  if (parseResult_.__isset.errorBeforeParsing) {
+    LOG(warning) <<
+      fileCounterStr_ << " " << "Parsing " <<
+      command_.file << " has been failed before the start";
+    LOG(warning) << parseResult_.errorBeforeParsing;
+    return;
+  }
+
+  // Only parsed files get a build action, so a failed file is parsed again
+  // by the next incremental parse
+  model::BuildActionPtr buildAction = addBuildAction(command_);
+  model::File::ParseStatus parseStatus =
+    addBuildLogs(parseResult_.buildLogs, command_.file);
+
+  if (parseResult_.errorDueParsing) {
+    LOG(warning) <<
+      fileCounterStr_ << " " << "Parsing " <<
+      command_.file << " had one or more errors during parsing";
+
+    if (parseStatus == model::File::ParseStatus::PSFullyParsed) {
+      parseStatus = model::File::ParseStatus::PSPartiallyParsed;
+    }
+  }
+
+  addCompileCommand(parseResult_.cmdArgs, buildAction, parseStatus);
+}
+
 bool JavaParser::parseCompileCommands(const std::string& path_) {
   pt::ptree _pt;
   pt::read_json(path_, _pt);
   pt::ptree _pt_filtered;
   pr::ipstream is;
-  std::size_t file_index = 0;
+  std::vector<CompileCommand> commands;
 
   // Filter compile commands tree to contain only Java-related files
   std::copy_if (
@@ -400,7 +690,12 @@ bool JavaParser::parseCompileCommands(const std::string& path_) {
       return ext == ".java";
     });
 
-  _numCompileCommands = _pt_filtered.size();
+  for (pt::ptree::value_type &command_tree_: _pt_filtered) {
+    commands.push_back(getCompileCommandFromJson(command_tree_));
+  }
+
+  removeParsedCommands(commands);
+  _numCompileCommands = commands.size();
 
   //--- Start Java Thrift server and connect to is via workers ---//
 
@@ -408,31 +703,21 @@ bool JavaParser::parseCompileCommands(const std::string& path_) {
 
   LOG(info) << "JavaParser parse path: " << path_;
 
-  if (_numCompileCommands == 0) {
+  if (_pt_filtered.empty()) {
     LOG(info) << "Java-related compile commands not found in " << path_;
     return true;
   }
 
-  if (!_c.running()) {
-    startAndConnectToJavaProcess();
+  if (_numCompileCommands == 0) {
+    LOG(info) << "The Java files of " << path_ << " are up to date";
+    return true;
   }
 
-  std::unique_ptr<util::JobQueueThreadPool<ParseJob>> parsePool =
-    util::make_thread_pool<ParseJob>(_threadNum, make_parse_pool);
-
-  for (pt::ptree::value_type &command_tree_: _pt_filtered) {
-    CompileCommand command =
-      getCompileCommandFromJson(command_tree_);
-
-    ParseJob job(command, ++file_index);
-
-    //--- Push the job ---//
-
-    parsePool->enqueue(job);
+  if (!_c.running()) {
+    startAndConnectToJavaProcess(_incremental);
   }
 
-  // Block execution until every job is finished.
-  parsePool->wait();
+  parseBatches(commands);
 
   return true;
 }
@@ -441,107 +726,164 @@ bool JavaParser::parseJar(const std::string& path_) {
   //--- Start Java Thrift server and connect to is via workers ---//
 
   if (!_c.running()) {
-    startAndConnectToJavaProcess();
+    startAndConnectToJavaProcess(_incremental);
   }
 
-  std::vector<CompileCommand> commands = decompileJar(path_);
+  std::vector<CompileCommand> commands;
+
+  if (!decompileJar(path_, commands)) {
+    return false;
+  }
+
+  removeParsedCommands(commands);
   _numCompileCommands = commands.size();
+
+  parseBatches(commands);
+
+  return true;
+}
+
+void JavaParser::parseBatches(const std::vector<CompileCommand>& commands_) {
+  std::vector<std::vector<CompileCommand>> groups;
+  std::unordered_map<std::string, std::size_t> groupIndexes;
+  std::size_t maxBatchSize =
+    std::max(1, _ctx.options["java-parse-batch-size"].as<int>());
   std::size_t file_index = 0;
 
+  // Commands which differ only in the parsed file share their classpath and
+  // sourcepath, so they are parsed together by the Java parser
+  for (const CompileCommand& command : commands_) {
+    std::string key = command.directory + '\n' + command.command;
+    ba::erase_all(key, command.file);
+
+    auto it = groupIndexes.emplace(key, groups.size()).first;
+
+    if (it->second == groups.size()) {
+      groups.emplace_back();
+    }
+
+    groups[it->second].push_back(command);
+  }
+
   std::unique_ptr<util::JobQueueThreadPool<ParseJob>> parsePool =
     util::make_thread_pool<ParseJob>(_threadNum, make_parse_pool);
 
-  for (const CompileCommand& command : commands) {
-    ParseJob job(command, ++file_index);
+  for (const std::vector<CompileCommand>& group : groups) {
+    // A large group is still split between all the workers
+    std::size_t batchSize = std::min(
+      maxBatchSize, (group.size() + _threadNum - 1) / _threadNum);
 
-    //--- Push the job ---//
+    for (std::size_t i = 0; i < group.size(); i += batchSize) {
+      ParseJob job(
+        std::vector<CompileCommand>(
+          group.begin() + i,
+          group.begin() + std::min(i + batchSize, group.size())),
+        file_index + 1);
+      file_index += job.commands.size();
 
-    parsePool->enqueue(job);
+      //--- Push the job ---//
+
+      parsePool->enqueue(job);
+    }
   }
 
   // Block execution until every job is finished.
   parsePool->wait();
+}
 
-  return true;
+bool JavaParser::buildIndexes() {
+  // The tables were filled without secondary indexes, they are built now
+  return callFreeWorker(
+    "build the indexes of the Java tables",
+    [](JavaParserServiceHandler& handler_) { handler_.buildIndexes(); });
+}
+
+bool JavaParser::buildHierarchyClosure() {
+  // Inheritances and overrides are stored one level deep by the workers
+  return callFreeWorker(
+    "build the transitive hierarchy closure",
+    [](JavaParserServiceHandler& handler_)
+    {
+      handler_.buildHierarchyClosure();
+    });
 }
 
-std::vector<CompileCommand> JavaParser::decompileJar(const std::string& path_) {
+bool JavaParser::callFreeWorker(
+  const std::string& task_,
+  const std::function<void(JavaParserServiceHandler&)>& call_)
+{
+  std::shared_ptr<JavaParserServiceHandler> serviceHandler;
+  bool success = true;
+
+  try {
+    serviceHandler = findFreeWorker(15000);
+  } catch (TimeoutException& ex) {
+    LOG(error) <<
+      "Operation timeout, could not find free Java worker to " << task_ << "!";
+    return false;
+  }
+
+  LOG(info) << "[javaparser] Starting to " << task_;
+
+  try {
+    call_(*serviceHandler);
+  } catch (apache::thrift::TException& ex) {
+    LOG(error) << "[javaparser] Failed to " << task_;
+    LOG(error) << ex.what();
+    success = false;
+  }
+
+  serviceHandler->setFree();
+
+  return success;
+}
+
+bool JavaParser::decompileJar(
+  const std::string& path_,
+  std::vector<CompileCommand>& commands_)
+{
   fs::path jarPath(path_);
-  fs::path workspace(_ctx.options["workspace"].as<std::string>());
-  fs::path project(_ctx.options["name"].as<std::string>());
-  std::string decompiled = fs::basename(jarPath);
-  fs::path decompiled_root = workspace / project / decompiled;
-  std::vector<CompileCommand> commands;
+  fs::path decompiled_root = getDecompiledRoot(path_);
+  std::vector<std::string> javaFilePaths;
 
+  // The classes are read from the jar, only its manifest is extracted
   pr::system(
-    _unzip_path, "-o", jarPath, "-d", decompiled_root
+    _unzip_path, "-o", jarPath, "META-INF/MANIFEST.MF", "-d", decompiled_root
   );
 
   std::string classpath =
+    jarPath.string() + ":" +
     getClasspathFromMetaInf(
       decompiled_root, jarPath.parent_path()
     );
 
-  //--- Create a thread pool to decompile bytecodes ---//
-
-  std::unique_ptr<
-    util::JobQueueThreadPool<DecompileJob>> decompilePool =
-    util::make_thread_pool<DecompileJob>(
-      _threadNum,
-      [this, &commands, &classpath, &decompiled_root]
-      (DecompileJob& job_)
-      {
-        const std::string bytecodePath = job_.path;
-        std::shared_ptr<JavaParserServiceHandler> serviceHandler;
-
-        try {
-          serviceHandler = findFreeWorker(15000);
-        } catch (TimeoutException& ex) {
-          LOG(error) <<
-            "Operation timeout, could not find free "
-            "Java worker to decompile " << bytecodePath << "!";
-          return;
-        }
-
-        LOG(info) << "Decompiling " << bytecodePath;
-
-        std::string javaFilePath;
-
-        try {
-          serviceHandler -> decompileClass(javaFilePath, bytecodePath);
-          commands.push_back(
-            getCompileCommandForDecompiledFile(
-              javaFilePath, classpath, decompiled_root.string())
-          );
-        } catch (ClassDecompileException& ex) {
-          LOG(warning) << "Decompiling " << bytecodePath << " has been failed";
-          LOG(warning) << ex.message;
-        }
+  //--- Decompile the classes of the jar in one call ---//
 
-        serviceHandler->setFree();
-      });
-
-  //-- Decompile bytecodes --//
-
-  for (
-    fs::directory_entry& entry :
-    fs::recursive_directory_iterator(decompiled_root))
-  {
-    const std::string& bytecodePath = entry.path().string();
+  bool success = callFreeWorker(
+    "decompile " + jarPath.string(),
+    [&](JavaParserServiceHandler& handler_)
+    {
+      handler_.decompileJar(
+        javaFilePaths, jarPath.string(), decompiled_root.string());
+    });
 
-    if (acceptClass(bytecodePath) && rejectInnerClass(bytecodePath)) {
-      DecompileJob job(bytecodePath);
+  // A jar which could not be decompiled has no sources to parse
+  if (!success) {
+    return false;
+  }
 
-      //--- Push the job ---//
+  // The next incremental parse compares the jar to this version of it
+  std::ofstream hashFile((decompiled_root / JAR_HASH_FILE).string());
+  hashFile << getJarHash(path_) << std::endl;
 
-      decompilePool->enqueue(job);
-    }
+  for (const std::string& javaFilePath : javaFilePaths) {
+    commands_.push_back(
+      getCompileCommandForDecompiledFile(
+        javaFilePath, classpath, decompiled_root.string())
+    );
   }
 
-  // Block execution until every job is finished.
-  decompilePool->wait();
-
-  return commands;
+  return true;
 }
 
 JavaParser::~JavaParser() {}
@@ -553,11 +895,22 @@ extern "C"
 boost::program_options::options_description getOptions() {
   boost::program_options::options_description description("Java Plugin");
 
-  /*
   description.add_options()
-    ("java-arg", po::value<std::string>()->default_value("Java arg"),
-     "This argument will be used by the Java parser.");
-  */
+    ("java-jdbc-batch-size", po::value<int>()->default_value(1000),
+     "Number of rows the Java parser sends to the database in a single "
+     "JDBC batch when the rows of a source file are written out.")
+    ("java-parse-batch-size", po::value<int>()->default_value(100),
+     "Maximal number of source files with the same classpath and sourcepath "
+     "the Java parser parses together, resolving the bindings of the shared "
+     "types only once. If it is 1, the files are parsed one by one.")
+    ("java-pgsql-copy",
+     "If this flag is given and the database is PostgreSQL, the Java parser "
+     "loads the rows of each source file with the COPY protocol instead of "
+     "INSERT statements.")
+    ("java-decompile-cache", po::value<std::string>(),
+     "Directory of the sources decompiled from jars, reused by later runs "
+     "while the class files are unchanged. By default it is the "
+     ".java-decompile-cache directory of the workspace.");
 
   return description;
 }
@@ -2,8 +2,6 @@ package parser.srcjava;
 
 import org.eclipse.jdt.core.dom.*;
 
-import javax.persistence.EntityManager;
-
 import java.util.logging.Level;
 
 import static logger.Logger.LOGGER;
@@ -15,11 +13,12 @@ public class AstVisitor extends ASTVisitor {
   private boolean errorDueParsing;
 
   public AstVisitor(
-    CompilationUnit cu, EntityManager em, long fileId, String fileCounterStr)
+    CompilationUnit cu, RowWriter rowWriter,
+    long fileId, String fileCounterStr)
   {
     this.fileCounterStr = fileCounterStr;
     this.cu = cu;
-    this.pm = new PersistManager(cu, em, fileId);
+    this.pm = new PersistManager(cu, rowWriter, fileId);
     this.errorDueParsing = false;
   }
 
@@ -329,6 +328,10 @@ public class AstVisitor extends ASTVisitor {
     );
   }
 
+  public void persistFileSummary() {
+    pm.persistFileSummary();
+  }
+
   public boolean isErrorDueParsing() {
     return errorDueParsing;
   }
@@ -0,0 +1,481 @@
+package parser.srcjava;
+
+import model.*;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.*;
+import java.util.*;
+import java.util.logging.Level;
+
+import static logger.Logger.LOGGER;
+
+public class CopyRowWriter implements RowWriter {
+  private static final int ID_RANGE_SIZE = 10000;
+
+  /*
+    Columns of the tables written by COPY, in the order their values are
+    added. The lists must match the tables generated from the JPA mappings,
+    which is checked by matchesTables() before this writer is used.
+  */
+  private static final LinkedHashMap<String, List<String>> COLUMNS =
+    new LinkedHashMap<>();
+
+  static {
+    addColumns(
+      "JavaAstNode", "id", "\"astValue\"", "location_range_start_line",
+      "location_range_start_column", "location_range_end_line",
+      "location_range_end_column", "location_file", "\"entityHash\"",
+      "\"defEntityHash\"", "\"symbolType\"", "\"astType\"",
+      "\"visibleInSourceCode\"");
+    addColumns(
+      "JavaEntity", "id", "typeid", "\"astNodeId\"", "\"entityHash\"", "name",
+      "\"qualifiedName\"");
+    addColumns(
+      "JavaTypedEntity", "id", "\"isFinal\"", "\"isStatic\"", "\"typeHash\"",
+      "\"qualifiedType\"");
+    addColumns("JavaAnnotation", "id");
+    addColumns("JavaConstructor", "id");
+    addColumns("JavaEnum", "id");
+    addColumns("JavaEnumConstant", "id", "value");
+    addColumns("JavaInitializer", "id", "\"kind\"", "\"typeHash\"");
+    addColumns("JavaMethod", "id");
+    addColumns(
+      "JavaRecord", "id", "\"isAbstract\"", "\"isFinal\"", "\"isStatic\"");
+    addColumns("JavaVariable", "id");
+    addColumns("JavaConstructor_parameters", "object_id", "value");
+    addColumns("JavaConstructor_locals", "object_id", "value");
+    addColumns("JavaEnum_enumConstants", "object_id", "value");
+    addColumns("JavaInitializer_locals", "object_id", "value");
+    addColumns("JavaMethod_parameters", "object_id", "value");
+    addColumns("JavaMethod_locals", "object_id", "value");
+    addColumns(
+      "JavaMemberType", "id", "\"typeHash\"", "\"memberAstNode\"",
+      "\"memberTypeHash\"", "kind", "visibility");
+    addColumns(
+      "JavaDocComment", "id", "\"contentHash\"", "\"content\"",
+      "\"entityHash\"");
+    addColumns("JavaRelation", "id", "lhs", "rhs", "\"kind\"");
+    addColumns("JavaInheritance", "id", "base", "derived");
+    addColumns(
+      "JavaImport", "id", "importer", "imported", "\"importedSymbol\"");
+    addColumns(
+      "JavaFileSummary", "id", "\"importCount\"", "\"typeCount\"",
+      "\"constructorCount\"", "\"methodCount\"", "\"importNodes\"",
+      "\"typeNodes\"", "\"constructorNodes\"", "\"methodNodes\"");
+  }
+
+  private final Connection connection;
+  private final Connection idConnection;
+  private final CopyManager copyManager;
+  private final HashMap<String, IdRange> idRanges;
+  private final ArrayList<Object> rows;
+  private boolean failed;
+
+  public CopyRowWriter(EMFactory emf) {
+    try {
+      this.connection = emf.createConnection();
+      this.connection.setAutoCommit(false);
+      this.idConnection = emf.createConnection();
+      this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+
+    this.idRanges = new HashMap<>();
+    this.rows = new ArrayList<>();
+  }
+
+  @Override
+  public void begin() {
+    rows.clear();
+    failed = false;
+  }
+
+  @Override
+  public void persistRow(Object jpaObject) {
+    if (jpaObject instanceof JavaAstNode) {
+      try {
+        ((JavaAstNode) jpaObject).setId(nextId("JavaAstNode"));
+      } catch (SQLException e) {
+        failed = true;
+        throw new IllegalStateException(e);
+      }
+    }
+
+    rows.add(jpaObject);
+  }
+
+  @Override
+  public boolean commit() {
+    if (failed) {
+      rows.clear();
+      return false;
+    }
+
+    try {
+      copyRows();
+      connection.commit();
+      return true;
+    } catch (SQLException | IOException e) {
+      LOGGER.log(Level.SEVERE, e.getMessage());
+      rollback();
+      return false;
+    } finally {
+      rows.clear();
+    }
+  }
+
+  @Override
+  public void rollback() {
+    rows.clear();
+
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      LOGGER.log(Level.SEVERE, e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Connection c : Arrays.asList(connection, idConnection)) {
+      try {
+        c.close();
+      } catch (SQLException e) {
+        LOGGER.log(Level.SEVERE, e.getMessage());
+      }
+    }
+  }
+
+  private long nextId(String table) throws SQLException {
+    IdRange ids = idRanges.computeIfAbsent(table, t -> new IdRange());
+
+    if (ids.next > ids.last) {
+      /*
+        The range is reserved from the same table as the JPA id generators
+        use. It is committed right away on a separate connection, so other
+        workers are not blocked until this file is committed.
+      */
+      try (
+        PreparedStatement statement = idConnection.prepareStatement(
+          "UPDATE \"JavaIdSequence\" SET value = value + ? " +
+            "WHERE name = ? RETURNING value"))
+      {
+        statement.setInt(1, ID_RANGE_SIZE);
+        statement.setString(2, table);
+
+        try (ResultSet resultSet = statement.executeQuery()) {
+          if (!resultSet.next()) {
+            throw new SQLException("No id sequence found for " + table);
+          }
+
+          ids.last = resultSet.getLong(1);
+          ids.next = ids.last - ID_RANGE_SIZE + 1;
+        }
+      }
+    }
+
+    return ids.next++;
+  }
+
+  private void copyRows() throws SQLException, IOException {
+    CopyTable astNodes = new CopyTable("JavaAstNode");
+    CopyTable entities = new CopyTable("JavaEntity");
+    CopyTable typedEntities = new CopyTable("JavaTypedEntity");
+    CopyTable annotations = new CopyTable("JavaAnnotation");
+    CopyTable constructors = new CopyTable("JavaConstructor");
+    CopyTable enums = new CopyTable("JavaEnum");
+    CopyTable enumConstants = new CopyTable("JavaEnumConstant");
+    CopyTable initializers = new CopyTable("JavaInitializer");
+    CopyTable methods = new CopyTable("JavaMethod");
+    CopyTable records = new CopyTable("JavaRecord");
+    CopyTable variables = new CopyTable("JavaVariable");
+    CopyTable constructorParams = new CopyTable("JavaConstructor_parameters");
+    CopyTable constructorLocals = new CopyTable("JavaConstructor_locals");
+    CopyTable enumEnumConstants = new CopyTable("JavaEnum_enumConstants");
+    CopyTable initializerLocals = new CopyTable("JavaInitializer_locals");
+    CopyTable methodParams = new CopyTable("JavaMethod_parameters");
+    CopyTable methodLocals = new CopyTable("JavaMethod_locals");
+    CopyTable memberTypes = new CopyTable("JavaMemberType");
+    CopyTable docComments = new CopyTable("JavaDocComment");
+    CopyTable relations = new CopyTable("JavaRelation");
+    CopyTable inheritances = new CopyTable("JavaInheritance");
+    CopyTable imports = new CopyTable("JavaImport");
+    CopyTable fileSummaries = new CopyTable("JavaFileSummary");
+
+    IdentityHashMap<JavaEntity, Long> entityIds = new IdentityHashMap<>();
+    Deque<JavaEntity> pendingEntities = new ArrayDeque<>();
+
+    for (Object row : rows) {
+      if (row instanceof JavaAstNode) {
+        JavaAstNode n = (JavaAstNode) row;
+
+        astNodes.addRow(
+          n.getId(), n.getAstValue(),
+          n.getLocation_range_start_line(), n.getLocation_range_start_column(),
+          n.getLocation_range_end_line(), n.getLocation_range_end_column(),
+          n.getLocation_file(), n.getEntityHash(), n.getDefEntityHash(),
+          n.getSymbolType(), n.getAstType(), n.isVisibleInSourceCode());
+      } else if (row instanceof JavaEntity) {
+        pendingEntities.add((JavaEntity) row);
+      } else if (row instanceof JavaMemberType) {
+        JavaMemberType m = (JavaMemberType) row;
+
+        memberTypes.addRow(
+          nextId("JavaMemberType"), m.getTypeHash(),
+          m.getMemberAstNode().getId(), m.getMemberTypeHash(),
+          m.getKind(), m.getVisibility());
+      } else if (row instanceof JavaDocComment) {
+        JavaDocComment d = (JavaDocComment) row;
+
+        docComments.addRow(
+          nextId("JavaDocComment"), d.getContentHash(),
+          d.getContent(), d.getEntityHash());
+      } else if (row instanceof JavaRelation) {
+        JavaRelation r = (JavaRelation) row;
+
+        relations.addRow(
+          nextId("JavaRelation"), r.getLhs(), r.getRhs(), r.getKind());
+      } else if (row instanceof JavaInheritance) {
+        JavaInheritance i = (JavaInheritance) row;
+
+        inheritances.addRow(
+          nextId("JavaInheritance"), i.getBase(), i.getDerived());
+      } else if (row instanceof JavaImport) {
+        JavaImport i = (JavaImport) row;
+
+        imports.addRow(
+          nextId("JavaImport"), i.getImporter(),
+          i.getImported(), i.getImportedSymbol());
+      } else if (row instanceof JavaFileSummary) {
+        JavaFileSummary f = (JavaFileSummary) row;
+
+        fileSummaries.addRow(
+          f.getId(), f.getImportCount(), f.getTypeCount(),
+          f.getConstructorCount(), f.getMethodCount(), f.getImportNodes(),
+          f.getTypeNodes(), f.getConstructorNodes(), f.getMethodNodes());
+      }
+    }
+
+    // Parameters, locals and enum constants are reached by cascading
+    while (!pendingEntities.isEmpty()) {
+      JavaEntity e = pendingEntities.poll();
+
+      if (entityIds.containsKey(e)) {
+        continue;
+      }
+
+      long id = nextId("JavaEntity");
+      e.setId(id);
+      entityIds.put(e, id);
+
+      entities.addRow(
+        id, e.getClass().getSimpleName(), e.getAstNodeId(),
+        e.getEntityHash(), e.getName(), e.getQualifiedName());
+
+      if (e instanceof JavaTypedEntity) {
+        JavaTypedEntity t = (JavaTypedEntity) e;
+
+        typedEntities.addRow(
+          id, t.isFinal(), t.isStatic(), t.getTypeHash(), t.getQualifiedType());
+      }
+
+      if (e instanceof JavaVariable) {
+        variables.addRow(id);
+      } else if (e instanceof JavaMethod) {
+        JavaMethod m = (JavaMethod) e;
+
+        methods.addRow(id);
+        pendingEntities.addAll(m.getJavaMetVarParams());
+        pendingEntities.addAll(m.getJavaMetVarLocals());
+      } else if (e instanceof JavaConstructor) {
+        JavaConstructor c = (JavaConstructor) e;
+
+        constructors.addRow(id);
+        pendingEntities.addAll(c.getJavaConVarParams());
+        pendingEntities.addAll(c.getJavaConVarLocals());
+      } else if (e instanceof JavaInitializer) {
+        JavaInitializer i = (JavaInitializer) e;
+
+        initializers.addRow(id, i.getKind(), i.getTypeHash());
+        pendingEntities.addAll(i.getJavaInitVarLocals());
+      } else if (e instanceof JavaEnum) {
+        enums.addRow(id);
+        pendingEntities.addAll(((JavaEnum) e).getJavaEnumConstants());
+      } else if (e instanceof JavaEnumConstant) {
+        enumConstants.addRow(id, ((JavaEnumConstant) e).getValue());
+      } else if (e instanceof JavaRecord) {
+        JavaRecord r = (JavaRecord) e;
+
+        records.addRow(id, r.isAbstract(), r.isFinal(), r.isStatic());
+      } else if (e instanceof JavaAnnotation) {
+        annotations.addRow(id);
+      }
+    }
+
+    // Join table rows can be written once every entity has its id
+    for (JavaEntity e : entityIds.keySet()) {
+      if (e instanceof JavaMethod) {
+        JavaMethod m = (JavaMethod) e;
+
+        m.getJavaMetVarParams().forEach(
+          v -> methodParams.addRow(m.getId(), v.getId()));
+        m.getJavaMetVarLocals().forEach(
+          v -> methodLocals.addRow(m.getId(), v.getId()));
+      } else if (e instanceof JavaConstructor) {
+        JavaConstructor c = (JavaConstructor) e;
+
+        c.getJavaConVarParams().forEach(
+          v -> constructorParams.addRow(c.getId(), v.getId()));
+        c.getJavaConVarLocals().forEach(
+          v -> constructorLocals.addRow(c.getId(), v.getId()));
+      } else if (e instanceof JavaInitializer) {
+        JavaInitializer i = (JavaInitializer) e;
+
+        i.getJavaInitVarLocals().forEach(
+          v -> initializerLocals.addRow(i.getId(), v.getId()));
+      } else if (e instanceof JavaEnum) {
+        JavaEnum en = (JavaEnum) e;
+
+        en.getJavaEnumConstants().forEach(
+          c -> enumEnumConstants.addRow(en.getId(), c.getId()));
+      }
+    }
+
+    // Tables are copied in an order that satisfies their foreign keys
+    for (CopyTable table : Arrays.asList(
+      astNodes, entities, typedEntities, annotations, constructors, enums,
+      enumConstants, initializers, methods, records, variables,
+      constructorParams, constructorLocals, enumEnumConstants,
+      initializerLocals, methodParams, methodLocals, memberTypes,
+      docComments, relations, inheritances, imports, fileSummaries))
+    {
+      table.copy(copyManager);
+    }
+  }
+
+  private static void addColumns(String table, String... columns) {
+    COLUMNS.put(table, Arrays.asList(columns));
+  }
+
+  /*
+    Compares the column lists to the columns of the tables in the database,
+    so a changed mapping makes the parser fall back to JpaRowWriter instead
+    of writing its values to the wrong columns.
+  */
+  public static boolean matchesTables(EMFactory emf) {
+    try (Connection connection = emf.createConnection()) {
+      DatabaseMetaData metaData = connection.getMetaData();
+      boolean matches = true;
+
+      for (Map.Entry<String, List<String>> table : COLUMNS.entrySet()) {
+        Set<String> columns = new HashSet<>();
+        Set<String> copyColumns = new HashSet<>();
+
+        try (
+          ResultSet resultSet =
+            metaData.getColumns(null, null, table.getKey(), null))
+        {
+          while (resultSet.next()) {
+            columns.add(resultSet.getString("COLUMN_NAME"));
+          }
+        }
+
+        // Quoted names keep their case, the others are folded to lower case
+        table.getValue().forEach(c ->
+          copyColumns.add(
+            c.startsWith("\"") ?
+              c.substring(1, c.length() - 1) :
+              c.toLowerCase()));
+
+        if (!columns.equals(copyColumns)) {
+          LOGGER.log(
+            Level.WARNING,
+            "The COPY columns of " + table.getKey() + " " + copyColumns +
+              " differ from the columns of the table " + columns);
+          matches = false;
+        }
+      }
+
+      return matches;
+    } catch (SQLException e) {
+      LOGGER.log(Level.WARNING, e.getMessage());
+      return false;
+    }
+  }
+
+  private static class IdRange {
+    private long next = 1;
+    private long last = 0;
+  }
+
+  private static class CopyTable {
+    private final String copySql;
+    private final StringBuilder data;
+
+    private CopyTable(String table) {
+      this.copySql =
+        "COPY \"" + table + "\" (" + String.join(", ", COLUMNS.get(table)) +
+          ") FROM STDIN";
+      this.data = new StringBuilder();
+    }
+
+    private void addRow(Object... values) {
+      for (int i = 0; i < values.length; ++i) {
+        if (i > 0) {
+          data.append('\t');
+        }
+
+        appendValue(values[i]);
+      }
+
+      data.append('\n');
+    }
+
+    private void appendValue(Object value) {
+      if (value == null) {
+        data.append("\\N");
+      } else if (value instanceof Boolean) {
+        data.append((Boolean) value ? 't' : 'f');
+      } else if (value instanceof Enum) {
+        data.append(((Enum<?>) value).ordinal());
+      } else if (value instanceof String) {
+        String str = (String) value;
+
+        for (int i = 0; i < str.length(); ++i) {
+          char c = str.charAt(i);
+
+          switch (c) {
+            case '\\':
+              data.append("\\\\");
+              break;
+            case '\n':
+              data.append("\\n");
+              break;
+            case '\r':
+              data.append("\\r");
+              break;
+            case '\t':
+              data.append("\\t");
+              break;
+            default:
+              data.append(c);
+          }
+        }
+      } else {
+        data.append(value);
+      }
+    }
+
+    private void copy(CopyManager copyManager)
+      throws SQLException, IOException
+    {
+      if (data.length() > 0) {
+        copyManager.copyIn(copySql, new StringReader(data.toString()));
+      }
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package parser.srcjava;
+
+import com.strobel.Procyon;
+import com.strobel.decompiler.DecompilerSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+
+import static logger.Logger.LOGGER;
+
+/*
+  Persistent cache of decompiled sources, shared between runs. A source is
+  stored under the SHA-256 hash of the decompiler version, its settings and
+  the bytes of the class files it was decompiled from, so a class is only
+  decompiled again if one of these changes.
+*/
+public class DecompileCache {
+  private final Path dir;
+  private final String settingsKey;
+
+  public DecompileCache(String dir, DecompilerSettings settings) {
+    this.dir = Paths.get(dir);
+    this.settingsKey = String.join(
+      " ", Procyon.version(),
+      String.valueOf(settings.getIncludeLineNumbersInBytecode()),
+      String.valueOf(settings.getIncludeErrorDiagnostics()),
+      String.valueOf(settings.getForceExplicitImports()));
+  }
+
+  public String getKey(JarFile jarFile, List<String> entryNames)
+    throws IOException
+  {
+    MessageDigest digest;
+    byte[] buffer = new byte[8192];
+
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    digest.update(settingsKey.getBytes(StandardCharsets.UTF_8));
+
+    for (String entryName : entryNames) {
+      ZipEntry entry = jarFile.getEntry(entryName);
+
+      digest.update(entryName.getBytes(StandardCharsets.UTF_8));
+
+      try (InputStream stream = jarFile.getInputStream(entry)) {
+        int length;
+
+        while ((length = stream.read(buffer)) != -1) {
+          digest.update(buffer, 0, length);
+        }
+      }
+    }
+
+    StringBuilder key = new StringBuilder();
+
+    for (byte b : digest.digest()) {
+      key.append(String.format("%02x", b));
+    }
+
+    return key.toString();
+  }
+
+  public boolean copyTo(String key, File javaFile) {
+    Path source = getPath(key);
+
+    if (!Files.isRegularFile(source)) {
+      return false;
+    }
+
+    try {
+      Files.copy(
+        source, javaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Reading " + source + " has been failed");
+      return false;
+    }
+  }
+
+  /*
+    Sources are written to a temporary file first, so readers never see a
+    partial source of a concurrent writer.
+  */
+  public void store(String key, File javaFile) {
+    Path target = getPath(key);
+    Path temporary = null;
+
+    try {
+      Files.createDirectories(target.getParent());
+      temporary = Files.createTempFile(target.getParent(), key, ".tmp");
+
+      Files.copy(
+        javaFile.toPath(), temporary, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Writing " + target + " has been failed");
+
+      try {
+        if (temporary != null) {
+          Files.deleteIfExists(temporary);
+        }
+      } catch (IOException ignored) {
+        // The temporary file is left behind
+      }
+    }
+  }
+
+  private Path getPath(String key) {
+    return dir.resolve(key.substring(0, 2)).resolve(key + ".java");
+  }
+}
@@ -0,0 +1,81 @@
+package parser.srcjava;
+
+import model.JavaAstNode;
+import model.JavaEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class DefinitionIndex {
+  private final HashMap<Long, List<Definition>> definitions;
+
+  public DefinitionIndex() {
+    this.definitions = new HashMap<>();
+  }
+
+  public void addDefinition(JavaAstNode javaAstNode, JavaEntity javaEntity) {
+    definitions
+      .computeIfAbsent(javaAstNode.getEntityHash(), h -> new ArrayList<>())
+      .add(new Definition(javaAstNode, javaEntity));
+  }
+
+  public <E extends JavaEntity> E findEnclosingDefinition(
+    JavaAstNode child, long entityHash, Class<E> entityClass)
+  {
+    List<Definition> candidates = definitions.get(entityHash);
+    Definition enclosing = null;
+
+    /*
+      Definitions sharing the same entity hash are rare (e.g. lambdas are
+      distinguished by their start position), so the candidates are few and
+      the innermost one containing the child can be chosen directly.
+    */
+    if (candidates != null) {
+      for (Definition candidate : candidates) {
+        if (
+          entityClass.isInstance(candidate.javaEntity) &&
+          candidate.contains(child) &&
+          (enclosing == null ||
+            candidate.javaAstNode.isRangeSmaller(enclosing.javaAstNode)))
+        {
+          enclosing = candidate;
+        }
+      }
+    }
+
+    if (enclosing == null) {
+      throw new NoSuchElementException(
+        "Enclosing " + entityClass.getSimpleName() + " definition not found.");
+    }
+
+    return entityClass.cast(enclosing.javaEntity);
+  }
+
+  private static class Definition {
+    private final JavaAstNode javaAstNode;
+    private final JavaEntity javaEntity;
+
+    private Definition(JavaAstNode javaAstNode, JavaEntity javaEntity) {
+      this.javaAstNode = javaAstNode;
+      this.javaEntity = javaEntity;
+    }
+
+    private boolean contains(JavaAstNode child) {
+      long line = child.getLocation_range_start_line();
+      long column = child.getLocation_range_start_column();
+      long startLine = javaAstNode.getLocation_range_start_line();
+      long startColumn = javaAstNode.getLocation_range_start_column();
+      long endLine = javaAstNode.getLocation_range_end_line();
+      long endColumn = javaAstNode.getLocation_range_end_column();
+
+      boolean startPosLessEqualPos =
+        startLine < line || (startLine == line && startColumn <= column);
+      boolean posLessThanEndPos =
+        line < endLine || (line == endLine && column < endColumn);
+
+      return startPosLessEqualPos && posLessThanEndPos;
+    }
+  }
+}
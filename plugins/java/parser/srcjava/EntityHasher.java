@@ -0,0 +1,60 @@
+package parser.srcjava;
+
+/*
+  64 bit hash of a sequence of strings and numbers, used as the entity hash
+  of the symbols. The parts are fed one by one, so no key string has to be
+  built. The characters are combined by FNV-1a and the result is mixed by
+  the finalizer of MurmurHash3 to spread the bits of short keys.
+*/
+public class EntityHasher {
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+  // Not a character, so parts can not run into each other
+  private static final char SEPARATOR = '\uffff';
+
+  private long hash;
+
+  public EntityHasher() {
+    this.hash = OFFSET_BASIS;
+  }
+
+  public static long hash(String str) {
+    return new EntityHasher().add(str).get();
+  }
+
+  public EntityHasher add(String str) {
+    for (int i = 0; i < str.length(); ++i) {
+      mix(str.charAt(i));
+    }
+
+    mix(SEPARATOR);
+
+    return this;
+  }
+
+  public EntityHasher add(long value) {
+    for (int i = 0; i < Long.SIZE; i += Character.SIZE) {
+      mix((char) (value >>> i));
+    }
+
+    mix(SEPARATOR);
+
+    return this;
+  }
+
+  public long get() {
+    long h = hash;
+
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+
+    return h;
+  }
+
+  private void mix(char c) {
+    hash = (hash ^ c) * PRIME;
+  }
+}
@@ -0,0 +1,76 @@
+package parser.srcjava;
+
+import model.JavaAstNode;
+import model.JavaFileSummary;
+import model.enums.AstType;
+
+import java.util.StringJoiner;
+
+/*
+  Collects the AST nodes of a file listed by the file references of the
+  service: its imports, type definitions, constructor definitions and method
+  definitions or declarations. The nodes must already have their ids.
+*/
+public class FileSummaryCollector {
+  private final StringJoiner importNodes;
+  private final StringJoiner typeNodes;
+  private final StringJoiner constructorNodes;
+  private final StringJoiner methodNodes;
+  private int importCount;
+  private int typeCount;
+  private int constructorCount;
+  private int methodCount;
+
+  public FileSummaryCollector() {
+    this.importNodes = new StringJoiner(",");
+    this.typeNodes = new StringJoiner(",");
+    this.constructorNodes = new StringJoiner(",");
+    this.methodNodes = new StringJoiner(",");
+  }
+
+  public void add(JavaAstNode javaAstNode) {
+    String id = String.valueOf(javaAstNode.getId());
+    AstType astType = javaAstNode.getAstType();
+
+    switch (javaAstNode.getSymbolType()) {
+      case FILE:
+        importNodes.add(id);
+        ++importCount;
+        break;
+      case TYPE:
+        if (astType == AstType.DEFINITION) {
+          typeNodes.add(id);
+          ++typeCount;
+        }
+        break;
+      case CONSTRUCTOR:
+        if (astType == AstType.DEFINITION) {
+          constructorNodes.add(id);
+          ++constructorCount;
+        }
+        break;
+      case METHOD:
+        if (astType == AstType.DEFINITION || astType == AstType.DECLARATION) {
+          methodNodes.add(id);
+          ++methodCount;
+        }
+        break;
+    }
+  }
+
+  public JavaFileSummary getFileSummary(long fileId) {
+    JavaFileSummary javaFileSummary = new JavaFileSummary();
+
+    javaFileSummary.setId(fileId);
+    javaFileSummary.setImportCount(importCount);
+    javaFileSummary.setTypeCount(typeCount);
+    javaFileSummary.setConstructorCount(constructorCount);
+    javaFileSummary.setMethodCount(methodCount);
+    javaFileSummary.setImportNodes(importNodes.toString());
+    javaFileSummary.setTypeNodes(typeNodes.toString());
+    javaFileSummary.setConstructorNodes(constructorNodes.toString());
+    javaFileSummary.setMethodNodes(methodNodes.toString());
+
+    return javaFileSummary;
+  }
+}
@@ -0,0 +1,83 @@
+package parser.srcjava;
+
+import model.EMFactory;
+import model.JavaParseGeneration;
+import model.enums.ClosureKind;
+
+import javax.persistence.EntityManager;
+import java.util.logging.Level;
+
+import static logger.Logger.LOGGER;
+
+/*
+  Materializes the transitive closure of the type inheritances and of the
+  method overrides into the JavaHierarchyClosure table, with the length of
+  the shortest path between the two ends. The closure is computed by
+  recursive queries of the database after every file has been parsed.
+*/
+public class HierarchyClosureBuilder {
+  // Bounds the recursion if hash collisions form a cycle
+  private static final int MAX_DEPTH = 64;
+
+  private final EMFactory emf;
+
+  public HierarchyClosureBuilder(EMFactory emf) {
+    this.emf = emf;
+  }
+
+  public void build() {
+    EntityManager em = emf.createEntityManager();
+
+    LOGGER.log(Level.INFO, "Building the hierarchy closure");
+
+    try {
+      em.getTransaction().begin();
+      em.createNativeQuery("DELETE FROM \"JavaHierarchyClosure\"")
+        .executeUpdate();
+      em.createNativeQuery(
+        getInsertSql(
+          "SELECT base, derived, " + ClosureKind.INHERITANCE.ordinal() +
+            " AS kind FROM \"JavaInheritance\""))
+        .executeUpdate();
+      em.createNativeQuery(
+        getInsertSql(
+          "SELECT lhs AS base, rhs AS derived, \"kind\" AS kind " +
+            "FROM \"JavaRelation\""))
+        .executeUpdate();
+      // The closure is the last step of a parse
+      JavaParseGeneration.update(em);
+      em.getTransaction().commit();
+    } finally {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+
+      em.close();
+    }
+  }
+
+  /*
+    The edges are extended towards their bases. A path gets the kind of its
+    edge at the base end, so an override of a method implementing an
+    interface method implements that as well.
+  */
+  private static String getInsertSql(String edges) {
+    return
+      "INSERT INTO \"JavaHierarchyClosure\" " +
+        "(id, base, derived, depth, \"kind\") " +
+      "WITH RECURSIVE " +
+        "edge (base, derived, kind) AS (" + edges + "), " +
+        "closure (base, derived, depth, kind) AS (" +
+          "SELECT base, derived, 1, kind FROM edge " +
+          "UNION " +
+          "SELECT e.base, c.derived, c.depth + 1, e.kind " +
+          "FROM edge e JOIN closure c ON e.derived = c.base " +
+          "WHERE c.depth < " + MAX_DEPTH +
+        ") " +
+      "SELECT " +
+        "COALESCE((SELECT MAX(id) FROM \"JavaHierarchyClosure\"), 0) + " +
+          "ROW_NUMBER() OVER (), " +
+        "base, derived, MIN(depth), kind " +
+      "FROM closure WHERE base <> derived GROUP BY base, derived, kind";
+  }
+}
@@ -0,0 +1,161 @@
+package parser.srcjava;
+
+import model.EMFactory;
+import model.enums.AstType;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import static logger.Logger.LOGGER;
+
+/*
+  Removes the rows of the changed source files before they are parsed again
+  by an incremental parse, and looks up the files depending on them. The
+  rows of a file are reached through its AST nodes: the entities by their
+  AST node ids, the inheritances, overrides and doc comments by the entity
+  hashes of the symbols the file defines.
+*/
+public class IncrementalCleaner {
+  private static final int IN_BATCH_SIZE = 500;
+
+  private static final String[] JOIN_TABLES = {
+    "JavaConstructor_parameters", "JavaConstructor_locals",
+    "JavaEnum_enumConstants", "JavaInitializer_locals",
+    "JavaMethod_parameters", "JavaMethod_locals"
+  };
+
+  // Subclass tables come before the tables of their superclasses
+  private static final String[] ENTITY_TABLES = {
+    "JavaAnnotation", "JavaConstructor", "JavaEnum", "JavaEnumConstant",
+    "JavaInitializer", "JavaMethod", "JavaRecord", "JavaVariable",
+    "JavaTypedEntity", "JavaEntity"
+  };
+
+  private final EMFactory emf;
+
+  public IncrementalCleaner(EMFactory emf) {
+    this.emf = emf;
+  }
+
+  /*
+    A file depends on a changed file if it refers to a symbol defined there,
+    because its rows store what the references were resolved to.
+  */
+  public List<Long> getDependentFileIds(List<Long> fileIds) {
+    Set<Long> dependentFileIds = new HashSet<>();
+    EntityManager em = emf.createEntityManager();
+
+    try {
+      for (String fileIdList : getIdLists(fileIds)) {
+        List<?> result = em.createNativeQuery(
+          "SELECT DISTINCT location_file FROM \"JavaAstNode\" " +
+          "WHERE \"entityHash\" IN (" + getDefinitionHashes(fileIdList) +
+          ") AND location_file NOT IN (" + fileIdList + ")")
+          .getResultList();
+
+        result.forEach(
+          id -> dependentFileIds.add(((Number) id).longValue()));
+      }
+    } finally {
+      em.close();
+    }
+
+    dependentFileIds.removeAll(fileIds);
+
+    return new ArrayList<>(dependentFileIds);
+  }
+
+  public void cleanup(List<Long> fileIds) {
+    EntityManager em = emf.createEntityManager();
+
+    LOGGER.log(
+      Level.INFO,
+      "Removing the rows of " + fileIds.size() + " changed files");
+
+    try {
+      em.getTransaction().begin();
+
+      for (String fileIdList : getIdLists(fileIds)) {
+        for (String sql : getCleanupSql(fileIdList)) {
+          em.createNativeQuery(sql).executeUpdate();
+        }
+      }
+
+      em.getTransaction().commit();
+    } finally {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+
+      em.close();
+    }
+  }
+
+  private static List<String> getCleanupSql(String fileIdList) {
+    List<String> statements = new ArrayList<>();
+    String astNodeIds =
+      "SELECT id FROM \"JavaAstNode\" " +
+      "WHERE location_file IN (" + fileIdList + ")";
+    String entityIds =
+      "SELECT id FROM \"JavaEntity\" " +
+      "WHERE \"astNodeId\" IN (" + astNodeIds + ")";
+    String definitionHashes = getDefinitionHashes(fileIdList);
+
+    for (String table : JOIN_TABLES) {
+      statements.add(
+        "DELETE FROM \"" + table + "\" " +
+        "WHERE object_id IN (" + entityIds + ") " +
+        "OR value IN (" + entityIds + ")");
+    }
+
+    // The rows referring to the definitions go before the definitions
+    statements.add(
+      "DELETE FROM \"JavaDocComment\" " +
+      "WHERE \"entityHash\" IN (" + definitionHashes + ")");
+    statements.add(
+      "DELETE FROM \"JavaInheritance\" " +
+      "WHERE derived IN (" + definitionHashes + ")");
+    statements.add(
+      "DELETE FROM \"JavaRelation\" " +
+      "WHERE rhs IN (" + definitionHashes + ")");
+    statements.add(
+      "DELETE FROM \"JavaMemberType\" " +
+      "WHERE \"memberAstNode\" IN (" + astNodeIds + ")");
+
+    for (String table : ENTITY_TABLES) {
+      statements.add(
+        "DELETE FROM \"" + table + "\" WHERE id IN (" + entityIds + ")");
+    }
+
+    statements.add(
+      "DELETE FROM \"JavaFileSummary\" WHERE id IN (" + fileIdList + ")");
+    statements.add(
+      "DELETE FROM \"JavaAstNode\" " +
+      "WHERE location_file IN (" + fileIdList + ")");
+
+    return statements;
+  }
+
+  private static String getDefinitionHashes(String fileIdList) {
+    return
+      "SELECT \"entityHash\" FROM \"JavaAstNode\" " +
+      "WHERE location_file IN (" + fileIdList + ") " +
+      "AND \"astType\" IN (" + AstType.DECLARATION.ordinal() + ", " +
+        AstType.DEFINITION.ordinal() + ")";
+  }
+
+  private static List<String> getIdLists(List<Long> ids) {
+    List<String> idLists = new ArrayList<>();
+
+    for (int i = 0; i < ids.size(); i += IN_BATCH_SIZE) {
+      idLists.add(
+        ids.subList(i, Math.min(i + IN_BATCH_SIZE, ids.size())).stream()
+          .map(String::valueOf)
+          .collect(Collectors.joining(", ")));
+    }
+
+    return idLists;
+  }
+}
@@ -0,0 +1,199 @@
+package parser.srcjava;
+
+import com.strobel.assembler.InputTypeLoader;
+import com.strobel.assembler.metadata.*;
+import com.strobel.decompiler.DecompilationOptions;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.PlainTextOutput;
+import com.strobel.decompiler.languages.java.JavaFormattingOptions;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+
+import static logger.Logger.LOGGER;
+
+/*
+  Decompiles the top level classes of a jar into Java source files under an
+  output directory, reading the class files directly from the jar. The
+  classes are split between the workers, and a worker resolves the types
+  of all its classes by the same metadata system, so referenced types are
+  loaded once per worker instead of once per class.
+*/
+public class JarDecompiler {
+  private final String jarPath;
+  private final String outputDir;
+  private final int threadNum;
+  private final DecompileCache decompileCache;
+
+  public JarDecompiler(
+    String jarPath, String outputDir, int threadNum,
+    DecompileCache decompileCache)
+  {
+    this.jarPath = jarPath;
+    this.outputDir = outputDir;
+    this.threadNum = threadNum;
+    this.decompileCache = decompileCache;
+  }
+
+  public List<String> decompile() throws IOException, InterruptedException {
+    try (JarFile jarFile = new JarFile(jarPath)) {
+      Map<String, List<String>> typeEntries = getTypeEntries(jarFile);
+      List<String> typeNames = new ArrayList<>(typeEntries.keySet());
+      int workerNum = Math.max(1, Math.min(threadNum, typeNames.size()));
+      ExecutorService executor = Executors.newFixedThreadPool(workerNum);
+      List<Future<List<String>>> results = new ArrayList<>();
+
+      try {
+        for (int i = 0; i < workerNum; ++i) {
+          List<String> workerTypeNames = new ArrayList<>();
+
+          for (int j = i; j < typeNames.size(); j += workerNum) {
+            workerTypeNames.add(typeNames.get(j));
+          }
+
+          results.add(
+            executor.submit(
+              () -> decompileTypes(jarFile, typeEntries, workerTypeNames)));
+        }
+
+        List<String> javaFilePaths = new ArrayList<>();
+
+        for (Future<List<String>> result : results) {
+          javaFilePaths.addAll(result.get());
+        }
+
+        return javaFilePaths;
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /*
+    Maps the top level classes to the class files they are decompiled from,
+    inner classes are decompiled together with their top level classes.
+  */
+  private static Map<String, List<String>> getTypeEntries(JarFile jarFile) {
+    Map<String, List<String>> typeEntries = new TreeMap<>();
+    Enumeration<JarEntry> entries = jarFile.entries();
+
+    while (entries.hasMoreElements()) {
+      String name = entries.nextElement().getName();
+
+      if (!name.endsWith(".class")) {
+        continue;
+      }
+
+      int innerStart = name.indexOf('$', name.lastIndexOf('/') + 1);
+      String typeName =
+        innerStart == -1 ?
+          name.substring(0, name.length() - ".class".length()) :
+          name.substring(0, innerStart);
+
+      typeEntries.computeIfAbsent(typeName, t -> new ArrayList<>()).add(name);
+    }
+
+    // Inner classes of a missing top level class can not be decompiled
+    typeEntries.keySet().removeIf(
+      t -> jarFile.getEntry(t + ".class") == null);
+    typeEntries.values().forEach(Collections::sort);
+
+    return typeEntries;
+  }
+
+  private List<String> decompileTypes(
+    JarFile jarFile, Map<String, List<String>> typeEntries,
+    List<String> typeNames)
+  {
+    DecompilerSettings settings = getDecompilerSettings();
+    MetadataSystem metadataSystem =
+      new MetadataSystem(
+        new CompositeTypeLoader(
+          new JarTypeLoader(jarFile), new InputTypeLoader()));
+    DecompilationOptions options = new DecompilationOptions();
+    List<String> javaFilePaths = new ArrayList<>();
+
+    options.setSettings(settings);
+    options.setFullDecompilation(true);
+
+    for (String typeName : typeNames) {
+      try {
+        File javaFile = getJavaFile(typeName);
+        String key =
+          decompileCache == null ?
+            null :
+            decompileCache.getKey(jarFile, typeEntries.get(typeName));
+
+        if (key == null || !decompileCache.copyTo(key, javaFile)) {
+          decompileType(metadataSystem, options, typeName, javaFile);
+
+          if (key != null) {
+            decompileCache.store(key, javaFile);
+          }
+        }
+
+        javaFilePaths.add(javaFile.getPath());
+      } catch (Exception e) {
+        LOGGER.log(
+          Level.WARNING,
+          "Decompiling " + typeName + " of " + jarPath +
+            " has been failed: " + e.getMessage());
+      }
+    }
+
+    return javaFilePaths;
+  }
+
+  private File getJavaFile(String typeName) throws IOException {
+    File javaFile = new File(outputDir, typeName + ".java");
+    File parent = javaFile.getParentFile();
+
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Could not create " + parent);
+    }
+
+    return javaFile;
+  }
+
+  private void decompileType(
+    MetadataSystem metadataSystem, DecompilationOptions options,
+    String typeName, File javaFile) throws IOException
+  {
+    TypeReference typeReference = metadataSystem.lookupType(typeName);
+    TypeDefinition typeDefinition =
+      typeReference == null ? null : typeReference.resolve();
+
+    if (typeDefinition == null) {
+      throw new IOException("The type could not be resolved");
+    }
+
+    DeobfuscationUtilities.processType(typeDefinition);
+
+    try (
+      Writer writer =
+        new OutputStreamWriter(
+          new FileOutputStream(javaFile), StandardCharsets.UTF_8))
+    {
+      options.getSettings().getLanguage().decompileType(
+        typeDefinition, new PlainTextOutput(writer), options);
+    }
+  }
+
+  public static DecompilerSettings getDecompilerSettings() {
+    DecompilerSettings settings = new DecompilerSettings();
+
+    settings.setIncludeLineNumbersInBytecode(false);
+    settings.setIncludeErrorDiagnostics(false);
+    settings.setForceExplicitImports(true);
+    settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
+
+    return settings;
+  }
+}
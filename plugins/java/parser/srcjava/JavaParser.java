@@ -1,33 +1,57 @@
 package parser.srcjava;
 
 import cc.parser.java.*;
-import com.strobel.decompiler.Decompiler;
-import com.strobel.decompiler.DecompilerSettings;
-import com.strobel.decompiler.PlainTextOutput;
 import model.EMFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.thrift.TException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 
-import javax.persistence.EntityManager;
 import java.io.*;
 import java.util.*;
+import java.util.logging.Level;
 
+import static logger.Logger.LOGGER;
 import static parser.srcjava.Utils.*;
 
 public class JavaParser implements JavaParserService.Iface {
   private final Hashtable<String, String> javaCoreOptions;
-  private final ThreadLocal<EntityManager> em;
+  private final EMFactory emf;
+  private final ThreadLocal<RowWriter> rowWriter;
+  private final List<RowWriter> rowWriters;
   private final ThreadLocal<ASTParser> parser;
+  private final DecompileCache decompileCache;
 
   {
     javaCoreOptions = getJavaCoreOptions();
-    EMFactory emf = new EMFactory(System.getProperty("rawDbContext"), true);
-    em = ThreadLocal.withInitial(emf::createEntityManager);
+    // The rows of an earlier parse are kept by an incremental parse
+    emf = new EMFactory(
+      System.getProperty("rawDbContext"), !Boolean.getBoolean("incremental"));
+
+    rowWriters = Collections.synchronizedList(new ArrayList<>());
+
+    if (
+      Boolean.getBoolean("pgsqlCopy") && emf.isPostgreSQL() &&
+      CopyRowWriter.matchesTables(emf))
+    {
+      rowWriter = ThreadLocal.withInitial(
+        () -> addRowWriter(new CopyRowWriter(emf)));
+    } else {
+      rowWriter = ThreadLocal.withInitial(
+        () -> addRowWriter(new JpaRowWriter(emf.createEntityManager())));
+    }
+
     parser = ThreadLocal.withInitial(() -> ASTParser.newParser(AST.JLS_Latest));
     parser.get().setKind(ASTParser.K_COMPILATION_UNIT);
+
+    String decompileCacheDir = System.getProperty("decompileCacheDir", "");
+    decompileCache =
+      decompileCacheDir.isEmpty() ?
+        null :
+        new DecompileCache(
+          decompileCacheDir, JarDecompiler.getDecompilerSettings());
   }
 
   @Override
@@ -40,69 +64,239 @@ public class JavaParser implements JavaParserService.Iface {
 
     try {
       File file = new File(filePath);
-      String fileStr = FileUtils.readFileToString(file, "UTF-8");
-
-      String[] classpathEntries =
-        argParser.getClasspath().toArray(new String[0]);
-      String[] sourcepathEntries =
-        argParser.getSourcepath().toArray(new String[0]);
-      String[] encodings = new String[sourcepathEntries.length];
-      Arrays.fill(encodings, argParser.getEncoding());
-
-      parser.get().setResolveBindings(true);
-      parser.get().setBindingsRecovery(true);
-      parser.get().setCompilerOptions(javaCoreOptions);
+      // The same encoding as the one the files of a batch are read in
+      String fileStr =
+        FileUtils.readFileToString(file, argParser.getEncoding());
+
+      setUpParser(argParser);
       parser.get().setUnitName(argParser.getFilename());
-      parser.get().setEnvironment(
-        classpathEntries, sourcepathEntries,
-        encodings, true
-      );
       parser.get().setSource(fileStr.toCharArray());
 
       CompilationUnit cu = (CompilationUnit) parser.get().createAST(null);
 
-      AstVisitor visitor = new AstVisitor(cu, em.get(), fileId, fileCounterStr);
-      cu.accept(visitor);
+      return processCompilationUnit(cu, argParser, fileId, fileCounterStr);
 
-      return getParseResult(
-        cu, argParser, fileCounterStr, visitor.isErrorDueParsing());
-
-    } catch (IOException e) {
+    } catch (IOException | IllegalArgumentException e) {
       JavaBeforeParseException ex = new JavaBeforeParseException();
       ex.message = e.getMessage();
       throw ex;
     }
   }
 
+  /*
+    Parses the files of the commands with the same classpath, sourcepath and
+    encoding by one ASTParser.createASTs call, so the lookup environment is
+    built only once for them and the bindings of the shared types, like the
+    ones of the JDK and the libraries, are resolved only once.
+  */
   @Override
-  public String decompileClass(String path) throws TException {
-    String javaFilePath =
-      String.join(
-        ".", path.substring(0, path.lastIndexOf('.')),
-        "java"
-      );
-
-    try (
-      FileOutputStream stream =
-        new FileOutputStream(javaFilePath);
-      OutputStreamWriter writer = new OutputStreamWriter(stream))
-    {
-      DecompilerSettings settings = new DecompilerSettings();
+  public List<ParseResult> parseFiles(
+    List<CompileCommand> compileCommands, List<Long> fileIds,
+    List<String> fileCounterStrs) throws TException
+  {
+    ParseResult[] parseResults = new ParseResult[compileCommands.size()];
+    ArgParser[] argParsers = new ArgParser[compileCommands.size()];
+    Map<List<Object>, List<Integer>> groups = new LinkedHashMap<>();
+
+    for (int i = 0; i < compileCommands.size(); ++i) {
+      try {
+        argParsers[i] =
+          new ArgParser(compileCommands.get(i), fileCounterStrs.get(i));
+      } catch (RuntimeException e) {
+        parseResults[i] = getFailedParseResult(e.getMessage());
+        continue;
+      }
+
+      if (!new File(argParsers[i].getFilepath()).isFile()) {
+        parseResults[i] = getFailedParseResult(
+          argParsers[i].getFilepath() + " does not exist");
+        continue;
+      }
+
+      List<Object> environment = Arrays.asList(
+        argParsers[i].getClasspath(), argParsers[i].getSourcepath(),
+        argParsers[i].getEncoding());
+
+      groups.computeIfAbsent(environment, e -> new ArrayList<>()).add(i);
+    }
+
+    for (List<Integer> group : groups.values()) {
+      parseGroup(group, argParsers, fileIds, fileCounterStrs, parseResults);
+    }
+
+    // Files not delivered by the batch parsing are parsed one by one
+    for (int i = 0; i < parseResults.length; ++i) {
+      if (parseResults[i] == null) {
+        try {
+          parseResults[i] = parseFile(
+            compileCommands.get(i), fileIds.get(i), fileCounterStrs.get(i));
+        } catch (JavaBeforeParseException e) {
+          parseResults[i] = getFailedParseResult(e.message);
+        }
+      }
+    }
+
+    return Arrays.asList(parseResults);
+  }
+
+  private void parseGroup(
+    List<Integer> group, ArgParser[] argParsers, List<Long> fileIds,
+    List<String> fileCounterStrs, ParseResult[] parseResults)
+  {
+    Map<String, Integer> indexes = new HashMap<>();
+    String[] sourceFilePaths = new String[group.size()];
+    String[] encodings = new String[group.size()];
+
+    for (int i = 0; i < group.size(); ++i) {
+      sourceFilePaths[i] = argParsers[group.get(i)].getFilepath();
+      indexes.put(sourceFilePaths[i], group.get(i));
+    }
+
+    // The encoding is a part of the group key, so it is the same for all
+    Arrays.fill(encodings, argParsers[group.get(0)].getEncoding());
+
+    FileASTRequestor requestor = new FileASTRequestor() {
+      @Override
+      public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+        Integer index = indexes.get(sourceFilePath);
+
+        if (index == null || parseResults[index] != null) {
+          return;
+        }
+
+        parseResults[index] = processCompilationUnit(
+          cu, argParsers[index], fileIds.get(index),
+          fileCounterStrs.get(index));
+      }
+    };
+
+    try {
+      setUpParser(argParsers[group.get(0)]);
+      parser.get().createASTs(
+        sourceFilePaths, encodings, new String[0], requestor, null);
+    } catch (RuntimeException e) {
+      LOGGER.log(
+        Level.WARNING,
+        "Parsing " + group.size() + " files together has been failed, " +
+          "the rest of them are parsed one by one: " + e.getMessage());
+    }
+  }
+
+  private void setUpParser(ArgParser argParser) {
+    String[] classpathEntries =
+      argParser.getClasspath().toArray(new String[0]);
+    String[] sourcepathEntries =
+      argParser.getSourcepath().toArray(new String[0]);
+    String[] encodings = new String[sourcepathEntries.length];
+    Arrays.fill(encodings, argParser.getEncoding());
 
-      settings.setIncludeLineNumbersInBytecode(false);
-      settings.setIncludeErrorDiagnostics(false);
-      settings.setForceExplicitImports(true);
+    parser.get().setResolveBindings(true);
+    parser.get().setBindingsRecovery(true);
+    parser.get().setCompilerOptions(javaCoreOptions);
+    parser.get().setEnvironment(
+      classpathEntries, sourcepathEntries,
+      encodings, true
+    );
+  }
+
+  private ParseResult processCompilationUnit(
+    CompilationUnit cu, ArgParser argParser, long fileId,
+    String fileCounterStr)
+  {
+    AstVisitor visitor =
+      new AstVisitor(cu, rowWriter.get(), fileId, fileCounterStr);
+    boolean errorDueParsing =
+      !persistCompilationUnit(cu, visitor, fileCounterStr);
+
+    return getParseResult(
+      cu, argParser, fileCounterStr,
+      errorDueParsing || visitor.isErrorDueParsing());
+  }
+
+  private RowWriter addRowWriter(RowWriter writer) {
+    rowWriters.add(writer);
+
+    return writer;
+  }
+
+  private void closeRowWriters() {
+    synchronized (rowWriters) {
+      rowWriters.forEach(RowWriter::close);
+      rowWriters.clear();
+    }
+  }
+
+  private static ParseResult getFailedParseResult(String message) {
+    ParseResult parseResult = new ParseResult();
+    parseResult.errorBeforeParsing = message;
+
+    return parseResult;
+  }
+
+  private boolean persistCompilationUnit(
+    CompilationUnit cu, AstVisitor visitor, String fileCounterStr)
+  {
+    RowWriter writer = rowWriter.get();
 
-      synchronized (this) {
-        Decompiler.decompile(path, new PlainTextOutput(writer), settings);
+    // Every row of the file is committed together or not at all
+    try {
+      writer.begin();
+      cu.accept(visitor);
+      visitor.persistFileSummary();
+
+      if (writer.commit()) {
+        return true;
       }
+    } catch (RuntimeException e) {
+      writer.rollback();
     }
-    catch (Exception e) {
+
+    LOGGER.log(
+      Level.SEVERE,
+      fileCounterStr +
+        " Persisting the file has been failed, its rows are rolled back"
+    );
+
+    return false;
+  }
+
+  @Override
+  public List<String> decompileJar(String jarPath, String outputDir)
+    throws TException
+  {
+    int threadNum = Integer.getInteger("threadNum", 1);
+
+    try {
+      return new JarDecompiler(
+        jarPath, outputDir, threadNum, decompileCache).decompile();
+    } catch (IOException | InterruptedException e) {
       ClassDecompileException ex = new ClassDecompileException();
       ex.message = e.getMessage();
       throw ex;
     }
+  }
 
-    return javaFilePath;
+  @Override
+  public List<Long> getDependentFileIds(List<Long> fileIds)
+    throws TException
+  {
+    return new IncrementalCleaner(emf).getDependentFileIds(fileIds);
+  }
+
+  @Override
+  public void cleanupFiles(List<Long> fileIds) throws TException {
+    new IncrementalCleaner(emf).cleanup(fileIds);
+  }
+
+  @Override
+  public void buildIndexes() throws TException {
+    // Indexes are built after the last file has been parsed
+    closeRowWriters();
+    emf.createIndexes();
+  }
+
+  @Override
+  public void buildHierarchyClosure() throws TException {
+    new HierarchyClosureBuilder(emf).build();
   }
 }
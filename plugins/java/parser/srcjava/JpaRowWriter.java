@@ -0,0 +1,56 @@
+package parser.srcjava;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+public class JpaRowWriter implements RowWriter {
+  private final EntityManager em;
+
+  public JpaRowWriter(EntityManager em) {
+    this.em = em;
+  }
+
+  @Override
+  public void begin() {
+    em.getTransaction().begin();
+  }
+
+  @Override
+  public void persistRow(Object jpaObject) {
+    // Ids are taken from a preallocated range on persist, no flush is needed
+    em.persist(jpaObject);
+  }
+
+  @Override
+  public boolean commit() {
+    EntityTransaction transaction = em.getTransaction();
+
+    try {
+      if (transaction.getRollbackOnly()) {
+        transaction.rollback();
+        return false;
+      }
+
+      transaction.commit();
+      return true;
+    } finally {
+      em.clear();
+    }
+  }
+
+  @Override
+  public void rollback() {
+    EntityTransaction transaction = em.getTransaction();
+
+    if (transaction.isActive()) {
+      transaction.rollback();
+    }
+
+    em.clear();
+  }
+
+  @Override
+  public void close() {
+    em.close();
+  }
+}
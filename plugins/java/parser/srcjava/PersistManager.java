@@ -4,7 +4,6 @@ import model.*;
 import model.enums.*;
 import org.eclipse.jdt.core.dom.*;
 
-import javax.persistence.EntityManager;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
@@ -14,14 +13,18 @@ import static parser.srcjava.Utils.*;
 
 public class PersistManager {
   private final CompilationUnit cu;
-  private final EntityManager em;
-  private final QueryManager qm;
+  private final RowWriter rowWriter;
+  private final DefinitionIndex definitionIndex;
+  private final FileSummaryCollector fileSummaryCollector;
   private final long fileId;
 
-  public PersistManager(CompilationUnit cu, EntityManager em, long fileId) {
+  public PersistManager(
+    CompilationUnit cu, RowWriter rowWriter, long fileId)
+  {
     this.cu = cu;
-    this.em = em;
-    this.qm = new QueryManager(em);
+    this.rowWriter = rowWriter;
+    this.definitionIndex = new DefinitionIndex();
+    this.fileSummaryCollector = new FileSummaryCollector();
     this.fileId = fileId;
   }
 
@@ -34,9 +37,8 @@ public class PersistManager {
     String qualifiedName = simpleName.getFullyQualifiedName();
     String qualifiedType = getQualifiedTypeName(nodeBinding.getType());
     int modifiers = nodeBinding.getModifiers();
-    int typeHash = qualifiedType.hashCode();
-    String entityHashStr = "";
-    String declaringNodeHashStr = "";
+    long typeHash = EntityHasher.hash(qualifiedType);
+    long declaringNodeEntityHash = 0;
     IMethodBinding methodDeclBinding = nodeBinding.getDeclaringMethod();
 
     if (methodDeclBinding == null) {
@@ -51,22 +53,19 @@ public class PersistManager {
           getQualifiedTypeName(
             ((AbstractTypeDeclaration) declaringNodeParent).resolveBinding());
 
-        declaringNodeHashStr =
-          getInitializerHashStr(
+        declaringNodeEntityHash =
+          getInitializerHash(
             declaringClassName, declaringNode.getStartPosition());
       }
 
     } else {
       ITypeBinding classBinding = methodDeclBinding.getDeclaringClass();
-      declaringNodeHashStr = getMethodHashStr(
+      declaringNodeEntityHash = getMethodHash(
         node, classBinding, methodDeclBinding);
     }
 
-    entityHashStr = getVariableHashStr(
-      declaringNodeHashStr, qualifiedType, qualifiedName);
-
-    int declaringNodeEntityHash = declaringNodeHashStr.hashCode();
-    int entityHash = entityHashStr.hashCode();
+    long entityHash = getVariableHash(
+      declaringNodeEntityHash, qualifiedType, qualifiedName);
 
     JavaAstNode javaAstNode = persistJavaAstNodeRow(
       node, SymbolType.VARIABLE,
@@ -74,25 +73,26 @@ public class PersistManager {
       entityHash, entityHash
     );
 
-    JavaAstNode javaAstNodeDef =
-      qm.queryParentAstNode(javaAstNode, declaringNodeEntityHash);
-
     setJavaTypedEntityFields(javaVariable, modifiers, typeHash, qualifiedType);
 
     if (methodDeclBinding == null) {
       JavaInitializer javaInitializer =
-        qm.queryJavaInitializer(javaAstNodeDef.getId());
+        definitionIndex.findEnclosingDefinition(
+          javaAstNode, declaringNodeEntityHash, JavaInitializer.class);
 
       javaInitializer.addJavaInitVarLocal(javaVariable);
 
     } else if (methodDeclBinding.isConstructor()) {
       JavaConstructor javaConstructor =
-        qm.queryJavaConstructor(javaAstNodeDef.getId());
+        definitionIndex.findEnclosingDefinition(
+          javaAstNode, declaringNodeEntityHash, JavaConstructor.class);
 
       javaConstructor.addJavaConVarLocal(javaVariable);
 
     } else {
-      JavaMethod javaMethod = qm.queryJavaMethod(javaAstNodeDef.getId());
+      JavaMethod javaMethod =
+        definitionIndex.findEnclosingDefinition(
+          javaAstNode, declaringNodeEntityHash, JavaMethod.class);
 
       javaMethod.addJavaMetVarLocal(javaVariable);
     }
@@ -112,10 +112,9 @@ public class PersistManager {
     ITypeBinding classBinding = constructorBinding.getDeclaringClass();
     String name = constructorBinding.getName();
     String qualifiedName = getQualifiedTypeName(classBinding);
-    String entityHashStr = getMethodHashStr(classBinding, constructorBinding);
+    long entityHash = getMethodHash(classBinding, constructorBinding);
     int modifiers = constructorBinding.getModifiers();
-    int classHash = qualifiedName.hashCode();
-    int entityHash = entityHashStr.hashCode();
+    long classHash = EntityHasher.hash(qualifiedName);
 
     JavaAstNode javaAstNode = persistJavaAstNodeRow(
       node, SymbolType.CONSTRUCTOR, AstType.USAGE, entityHash, entityHash);
@@ -139,8 +138,8 @@ public class PersistManager {
     SimpleName simpleName = node.getName();
     String declaringClassNameTypeParams = getQualifiedTypeName(enumBinding);
     int modifiers = node.getModifiers();
-    int entityHash = enumBinding.getQualifiedName().hashCode();
-    int mainTypeHash;
+    long entityHash = EntityHasher.hash(enumBinding.getQualifiedName());
+    long mainTypeHash;
 
     // Persist Enum constants
     for (int i = 0; i < enumConstants.size(); i++) {
@@ -179,10 +178,9 @@ public class PersistManager {
     SimpleName simpleName = node.getName();
     String qualifiedName = simpleName.getFullyQualifiedName();
     String declaringClassName = getQualifiedTypeName(declaringClass);
-    String entityHashStr = getEnumConstantHashStr(
+    long entityHash = getEnumConstantHash(
       declaringClassName, qualifiedName);
     int modifiers = declaringClass.getModifiers();
-    int entityHash = entityHashStr.hashCode();
 
     enumConstant.setValue(index);
     javaEnum.addJavaEnumConstant(enumConstant);
@@ -211,11 +209,10 @@ public class PersistManager {
     String qualifiedName = simpleName.getFullyQualifiedName();
     String qualifiedType = getQualifiedTypeName(methodBinding.getReturnType());
     String declaringClassName = getQualifiedTypeName(classBinding);
-    String entityHashStr = getMethodHashStr(classBinding, methodBinding);
+    long entityHash = getMethodHash(classBinding, methodBinding);
     int modifiers = methodBinding.getModifiers();
-    int classHash = declaringClassName.hashCode();
-    int entityHash = entityHashStr.hashCode();
-    int typeHash = qualifiedType.hashCode();
+    long classHash = EntityHasher.hash(declaringClassName);
+    long typeHash = EntityHasher.hash(qualifiedType);
 
     setJavaTypedEntityFields(javaMethod, modifiers, typeHash, qualifiedType);
 
@@ -241,8 +238,8 @@ public class PersistManager {
     ASTNode parent = node.getParent();
     String qualifiedType = getQualifiedTypeName(variableBinding.getType());
     String name = variableBinding.getName();
-    String entityHashStr = "";
     String declaringClassName = "";
+    long entityHash;
     AstType astType;
 
     if (variableBinding.isField()) {
@@ -250,12 +247,12 @@ public class PersistManager {
         ITypeBinding classBinding = variableBinding.getDeclaringClass();
         declaringClassName = getQualifiedTypeName(classBinding);
       }
-      entityHashStr = getFieldHashStr(declaringClassName, qualifiedType, name);
+      entityHash = getFieldHash(declaringClassName, qualifiedType, name);
 
     } else {
       IMethodBinding declaringMethodBinding =
         variableBinding.getVariableDeclaration().getDeclaringMethod();
-      String declaringNodeHashStr = "";
+      long declaringNodeEntityHash = 0;
 
       if (declaringMethodBinding == null) {
         ASTNode declaringNode = findDeclaringNode(node);
@@ -269,25 +266,24 @@ public class PersistManager {
             getQualifiedTypeName(
               ((AbstractTypeDeclaration) declaringNodeParent).resolveBinding());
 
-          declaringNodeHashStr =
-            getInitializerHashStr(
+          declaringNodeEntityHash =
+            getInitializerHash(
               declaringClassName, declaringNode.getStartPosition());
         }
       } else {
         ITypeBinding classBinding = declaringMethodBinding.getDeclaringClass();
         declaringClassName = getQualifiedTypeName(classBinding);
-        declaringNodeHashStr = getMethodHashStr(
+        declaringNodeEntityHash = getMethodHash(
           node, classBinding, declaringMethodBinding);
       }
 
-      entityHashStr = getVariableHashStr(
-        declaringNodeHashStr, qualifiedType, name);
+      entityHash = getVariableHash(
+        declaringNodeEntityHash, qualifiedType, name);
     }
 
     int modifiers = variableBinding.getModifiers();
-    int classHash = declaringClassName.hashCode();
-    int entityHash = entityHashStr.hashCode();
-    int typeHash = qualifiedType.hashCode();
+    long classHash = EntityHasher.hash(declaringClassName);
+    long typeHash = EntityHasher.hash(qualifiedType);
 
     setJavaTypedEntityFields(javaVariable, modifiers, typeHash, qualifiedType);
 
@@ -334,10 +330,9 @@ public class PersistManager {
     JavaEnumConstant javaEnumConstant = new JavaEnumConstant();
     String qualifiedType = getQualifiedTypeName(variableBinding.getType());
     String name = variableBinding.getName();
-    String entityHashStr = getEnumConstantHashStr(qualifiedType, name);
+    long entityHash = getEnumConstantHash(qualifiedType, name);
     int modifiers = variableBinding.getModifiers();
-    int classHash = qualifiedType.hashCode();
-    int entityHash = entityHashStr.hashCode();
+    long classHash = EntityHasher.hash(qualifiedType);
 
     javaEnumConstant.setValue(variableBinding.getVariableId());
 
@@ -385,12 +380,11 @@ public class PersistManager {
     IVariableBinding nodeBinding = node.resolveBinding();
     SimpleName simpleName = node.getName();
     String qualifiedName = simpleName.getFullyQualifiedName();
-    String entityHashStr = getFieldHashStr(
+    long entityHash = getFieldHash(
       declaringClassName, qualifiedType, qualifiedName);
     int modifiers = nodeBinding.getModifiers();
-    int entityHash = entityHashStr.hashCode();
-    int classHash = declaringClassName.hashCode();
-    int typeHash = qualifiedType.hashCode();
+    long classHash = EntityHasher.hash(declaringClassName);
+    long typeHash = EntityHasher.hash(qualifiedType);
 
     setJavaTypedEntityFields(javaVariable, modifiers, typeHash, qualifiedType);
 
@@ -417,11 +411,10 @@ public class PersistManager {
     ITypeBinding classBinding = methodBinding.getDeclaringClass();
     String declaringClassName = getQualifiedTypeName(classBinding);
     String qualifiedType = getQualifiedTypeName(methodBinding.getReturnType());
-    String entityHashStr = getMethodHashStr(node, classBinding, methodBinding);
+    long entityHash = getMethodHash(node, classBinding, methodBinding);
     int modifiers = methodBinding.getModifiers();
-    int entityHash = entityHashStr.hashCode();
-    int classHash = declaringClassName.hashCode();
-    int typeHash = qualifiedType.hashCode();
+    long classHash = EntityHasher.hash(declaringClassName);
+    long typeHash = EntityHasher.hash(qualifiedType);
 
     setJavaTypedEntityFields(javaMethod, modifiers, typeHash, qualifiedType);
 
@@ -429,7 +422,7 @@ public class PersistManager {
     for (Object varDeclObj : node.parameters()) {
       persistParameterDeclaration(
         (VariableDeclarationFragment) varDeclObj,
-        entityHashStr, javaMethod::addJavaMetVarParam
+        entityHash, javaMethod::addJavaMetVarParam
       );
     }
 
@@ -442,6 +435,8 @@ public class PersistManager {
     setJavaEntityFields(javaMethod, javaAstNode.getId(), entityHash, "", "");
 
     persistRow(javaMethod);
+
+    definitionIndex.addDefinition(javaAstNode, javaMethod);
   }
 
   public void persistConstructorDeclaration(MethodDeclaration node) {
@@ -450,16 +445,15 @@ public class PersistManager {
     ITypeBinding classBinding = methodBinding.getDeclaringClass();
     String name = node.getName().toString();
     String declaringClassName = getQualifiedTypeName(classBinding);
-    String entityHashStr = getMethodHashStr(classBinding, methodBinding);
+    long entityHash = getMethodHash(classBinding, methodBinding);
     int modifiers = node.getModifiers();
-    int entityHash = entityHashStr.hashCode();
-    int classHash = declaringClassName.hashCode();
+    long classHash = EntityHasher.hash(declaringClassName);
 
     // Persist constructor's parameters
     for (Object varDeclObj : node.parameters()) {
       persistParameterDeclaration(
         (SingleVariableDeclaration) varDeclObj,
-        entityHashStr, javaConstructor::addJavaConVarParam
+        entityHash, javaConstructor::addJavaConVarParam
       );
     }
 
@@ -475,6 +469,8 @@ public class PersistManager {
     );
 
     persistRow(javaConstructor);
+
+    definitionIndex.addDefinition(javaAstNode, javaConstructor);
   }
 
   public void persistMethodDeclaration(MethodDeclaration node) {
@@ -489,11 +485,10 @@ public class PersistManager {
       getQualifiedTypeName(node.getReturnType2().resolveBinding());
     AstType astType =
       node.getBody() == null ? AstType.DECLARATION : AstType.DEFINITION;
-    String entityHashStr = getMethodHashStr(classBinding, methodBinding);
+    long entityHash = getMethodHash(classBinding, methodBinding);
     int modifiers = node.getModifiers();
-    int entityHash = entityHashStr.hashCode();
-    int classHash = declaringClassName.hashCode();
-    int typeHash = qualifiedType.hashCode();
+    long classHash = EntityHasher.hash(declaringClassName);
+    long typeHash = EntityHasher.hash(qualifiedType);
 
     setJavaTypedEntityFields(javaMethod, modifiers, typeHash, qualifiedType);
 
@@ -501,7 +496,7 @@ public class PersistManager {
     for (Object varDeclObj : node.parameters()) {
       persistParameterDeclaration(
         (SingleVariableDeclaration) varDeclObj,
-        entityHashStr, javaMethod::addJavaMetVarParam
+        entityHash, javaMethod::addJavaMetVarParam
       );
     }
 
@@ -520,6 +515,10 @@ public class PersistManager {
       javaMethod, javaAstNode.getId(), entityHash, name, qualifiedName);
 
     persistRow(javaMethod);
+
+    if (astType == AstType.DEFINITION) {
+      definitionIndex.addDefinition(javaAstNode, javaMethod);
+    }
   }
 
   public void persistTypeDeclaration(TypeDeclaration node) {
@@ -530,8 +529,8 @@ public class PersistManager {
     SimpleName simpleName = node.getName();
     String qualifiedNameTypeParams = getQualifiedTypeName(typeBinding);
     int modifiers = node.getModifiers();
-    int entityHash = typeBinding.getQualifiedName().hashCode();
-    int mainTypeHash;
+    long entityHash = EntityHasher.hash(typeBinding.getQualifiedName());
+    long mainTypeHash;
 
     if (node.isMemberTypeDeclaration()) {
       mainTypeHash = getMainTypeHashForInnerType(node);
@@ -566,9 +565,9 @@ public class PersistManager {
     String qualifiedNameTypeParams = getQualifiedTypeName(typeBinding);
     boolean isEnum = typeBinding.isEnum();
     int modifiers = typeBinding.getModifiers();
-    int entityHash = qualifiedNameTypeParams.hashCode();
-    int defEntityHash =
-      typeBinding.getQualifiedName().split("<", 2)[0].hashCode();
+    long entityHash = EntityHasher.hash(qualifiedNameTypeParams);
+    long defEntityHash =
+      EntityHasher.hash(typeBinding.getQualifiedName().split("<", 2)[0]);
 
     setJavaRecordFields(javaRecord, modifiers);
 
@@ -602,12 +601,12 @@ public class PersistManager {
         );
     }
 
-    String entityHashStr =
-      getInitializerHashStr(declaringClassName, node.getStartPosition());
-    int entityHash = entityHashStr.hashCode();
+    long entityHash =
+      getInitializerHash(declaringClassName, node.getStartPosition());
 
     setJavaInitializerFields(
-      javaInitializer, node.getModifiers(), declaringClassName.hashCode());
+      javaInitializer, node.getModifiers(),
+      EntityHasher.hash(declaringClassName));
 
     JavaAstNode javaAstNode = persistJavaAstNodeRow(
       node, SymbolType.INITIALIZER, AstType.DEFINITION, entityHash, entityHash);
@@ -615,10 +614,12 @@ public class PersistManager {
     setJavaEntityFields(javaInitializer, javaAstNode.getId(), entityHash);
 
     persistRow(javaInitializer);
+
+    definitionIndex.addDefinition(javaAstNode, javaInitializer);
   }
 
   public void persistParameterDeclaration(
-    VariableDeclaration node, String methodHashStr,
+    VariableDeclaration node, long methodEntityHash,
     Consumer<JavaVariable> connectParent)
   {
     JavaVariable javaVariable = new JavaVariable();
@@ -626,11 +627,10 @@ public class PersistManager {
     SimpleName simpleName = node.getName();
     String qualifiedType = getQualifiedTypeName(nodeBinding.getType());
     String qualifiedName = simpleName.getFullyQualifiedName();
-    String entityHashStr = getVariableHashStr(
-      methodHashStr, qualifiedType, qualifiedName);
+    long entityHash = getVariableHash(
+      methodEntityHash, qualifiedType, qualifiedName);
     int modifiers = nodeBinding.getModifiers();
-    int entityHash = entityHashStr.hashCode();
-    int typeHash = qualifiedType.hashCode();
+    long typeHash = EntityHasher.hash(qualifiedType);
 
     setJavaTypedEntityFields(javaVariable, modifiers, typeHash, qualifiedType);
 
@@ -646,32 +646,33 @@ public class PersistManager {
   }
 
   public void persistClassExtensions(
-    Type superclassType, int entityHash)
+    Type superclassType, long entityHash)
   {
     if (superclassType != null) {
       String qualifiedSuperClassName =
         getQualifiedTypeName(superclassType.resolveBinding());
-      int superClassHash = qualifiedSuperClassName.hashCode();
+      long superClassHash = EntityHasher.hash(qualifiedSuperClassName);
 
       persistJavaInheritance(superClassHash, entityHash);
     }
   }
 
   public void persistInterfaceImplementations(
-    List<?> superInterfaceTypes, int entityHash)
+    List<?> superInterfaceTypes, long entityHash)
   {
     superInterfaceTypes.forEach(i -> {
       Type aInterface = (Type) i;
       String qualifiedSuperInterfaceName =
         getQualifiedTypeName(aInterface.resolveBinding());
-      int superInterfaceHash = qualifiedSuperInterfaceName.hashCode();
+      long superInterfaceHash =
+        EntityHasher.hash(qualifiedSuperInterfaceName);
 
       persistJavaInheritance(superInterfaceHash, entityHash);
     });
   }
 
   public JavaInheritance persistJavaInheritance(
-    int baseEntityHash, int derivedEntityHash)
+    long baseEntityHash, long derivedEntityHash)
   {
     JavaInheritance javaInheritance = new JavaInheritance();
 
@@ -686,7 +687,7 @@ public class PersistManager {
   public void persistMethodRelations(
     ITypeBinding superclassBinding, ITypeBinding[] superInterfaceBindings,
     IMethodBinding methodBinding, String methodName,
-    Visibility methodVisibility, int methodEntityHash)
+    Visibility methodVisibility, long methodEntityHash)
   {
     RelationCollector relationCollector =
       new RelationCollector(
@@ -702,7 +703,7 @@ public class PersistManager {
   }
 
   public JavaMemberType persistJavaMemberType(
-    int typeHash, int memberTypeHash, MemberTypeKind memberTypeKind,
+    long typeHash, long memberTypeHash, MemberTypeKind memberTypeKind,
     int modifiers, JavaAstNode javaAstNode)
   {
     JavaMemberType javaMemberType = new JavaMemberType();
@@ -717,7 +718,7 @@ public class PersistManager {
     return javaMemberType;
   }
 
-  public void persistJavaDoc(Javadoc node, int entityHash) {
+  public void persistJavaDoc(Javadoc node, long entityHash) {
     JavaDocComment javaDocComment = new JavaDocComment();
     String commentString = node.toString();
 
@@ -728,7 +729,7 @@ public class PersistManager {
 
   public <T extends ASTNode> JavaAstNode persistJavaAstNodeRow(
     T node, SymbolType symbolType, AstType astType,
-    int entityHash, int defEntityHash)
+    long entityHash, long defEntityHash)
   {
     JavaAstNode javaAstNode = new JavaAstNode();
     PositionInfo positionInfo;
@@ -760,19 +761,16 @@ public class PersistManager {
     );
 
     persistRow(javaAstNode);
+    fileSummaryCollector.add(javaAstNode);
 
     return javaAstNode;
   }
 
-  public void persistRow(Object jpaObject) {
-    try {
-      em.getTransaction().begin();
-      em.persist(jpaObject);
-      em.getTransaction().commit();
-    } catch (Exception ex) {
-      em.getTransaction().rollback();
-      throw ex;
-    }
+  public void persistFileSummary() {
+    persistRow(fileSummaryCollector.getFileSummary(fileId));
+  }
 
+  public void persistRow(Object jpaObject) {
+    rowWriter.persistRow(jpaObject);
   }
 }
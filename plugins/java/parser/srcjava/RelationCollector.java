@@ -17,11 +17,11 @@ public class RelationCollector {
   private final IMethodBinding methodBinding;
   private final String name;
   private final Visibility visibility;
-  private final int entityHash;
+  private final long entityHash;
 
   public RelationCollector(
     IMethodBinding methodBinding, String name,
-    Visibility visibility, int entityHash)
+    Visibility visibility, long entityHash)
   {
     this.methodBinding = methodBinding;
     this.name = name;
@@ -91,9 +91,8 @@ public class RelationCollector {
 
     if (superMethodBinding.isPresent()) {
       JavaRelation javaRelation = new JavaRelation();
-      String superMethodEntityHashStr =
-        getMethodHashStr(superclassBinding, methodBinding);
-      int superMethodEntityHash = superMethodEntityHashStr.hashCode();
+      long superMethodEntityHash =
+        getMethodHash(superclassBinding, methodBinding);
 
       setJavaRelationFields(
         javaRelation, superMethodEntityHash,
@@ -0,0 +1,18 @@
+package parser.srcjava;
+
+public interface RowWriter {
+  void begin();
+
+  /*
+    After a JavaAstNode has been passed to this method, its id must be set,
+    because the rows persisted afterwards refer to it.
+  */
+  void persistRow(Object jpaObject);
+
+  boolean commit();
+
+  void rollback();
+
+  // Releases the connection of the writer once every file has been parsed
+  void close();
+}
@@ -148,13 +148,9 @@ public abstract class Utils {
     return parameterTypeNames;
   }
 
-  public static String getParameterTypeNamesStr(ITypeBinding[] parameters) {
-    return Arrays.toString(getParameterTypeNames(parameters));
-  }
-
   public static void setJavaRelationFields(
-    JavaRelation javaRelation, int leftEntityHash,
-    int rightEntityHash, RelationKind kind)
+    JavaRelation javaRelation, long leftEntityHash,
+    long rightEntityHash, RelationKind kind)
   {
     javaRelation.setLhs(leftEntityHash);
     javaRelation.setRhs(rightEntityHash);
@@ -165,7 +161,7 @@ public abstract class Utils {
     JavaDocComment javaDocComment, String commentString, long entityHash)
   {
     javaDocComment.setContent(commentString);
-    javaDocComment.setContentHash(commentString.hashCode());
+    javaDocComment.setContentHash(EntityHasher.hash(commentString));
     javaDocComment.setEntityHash(entityHash);
   }
 
@@ -202,14 +198,15 @@ public abstract class Utils {
   }
 
   public static void setJavaInheritanceFields(
-    JavaInheritance javaInheritance, int baseEntityHash, int derivedEntityHash)
+    JavaInheritance javaInheritance, long baseEntityHash,
+    long derivedEntityHash)
   {
     javaInheritance.setBase(baseEntityHash);
     javaInheritance.setDerived(derivedEntityHash);
   }
 
   public static void setJavaInitializerFields(
-    JavaInitializer javaInitializer, int modifiers, int typeHash)
+    JavaInitializer javaInitializer, int modifiers, long typeHash)
   {
     javaInitializer.setKind(
       Flags.isStatic(modifiers) ?
@@ -220,7 +217,7 @@ public abstract class Utils {
   }
 
   public static void setJavaMemberTypeFields(
-    JavaMemberType javaMemberType, int typeHash, int memberTypeHash,
+    JavaMemberType javaMemberType, long typeHash, long memberTypeHash,
     MemberTypeKind memberTypeKind, int modifiers, JavaAstNode javaAstNode)
   {
     javaMemberType.setTypeHash(typeHash);
@@ -232,7 +229,7 @@ public abstract class Utils {
 
   public static void setJavaAstNodeFields(
     JavaAstNode javaAstNode, String astValue, PositionInfo positionInfo,
-    long fileId, int entityHash, int defEntityHash, SymbolType symbolType,
+    long fileId, long entityHash, long defEntityHash, SymbolType symbolType,
     AstType astType, boolean visibleInSourceCode)
   {
     javaAstNode.setAstValue(astValue);
@@ -248,64 +245,69 @@ public abstract class Utils {
     javaAstNode.setVisibleInSourceCode(visibleInSourceCode);
   }
 
-  public static String getInitializerHashStr(
-    String className, int startPosition)
-  {
-    return String.join(" ", className, String.valueOf(startPosition));
+  public static long getInitializerHash(String className, int startPosition) {
+    return new EntityHasher().add(className).add(startPosition).get();
   }
 
-  public static String getMethodHashStr(
+  public static long getMethodHash(
     ITypeBinding declaringTypeBinding, IMethodBinding methodBinding)
   {
-    String className = getQualifiedTypeName(declaringTypeBinding);
-    String type = methodBinding.getReturnType().getQualifiedName();
-    String name = methodBinding.getName();
-    String parameters =
-      getParameterTypeNamesStr(methodBinding.getParameterTypes());
-
-    return String.join(" ", className, type, name, parameters);
+    return addMethod(
+      new EntityHasher(), declaringTypeBinding, methodBinding).get();
   }
 
-  public static String getMethodHashStr(
+  public static long getMethodHash(
     ASTNode node, ITypeBinding declaringTypeBinding,
     IMethodBinding methodBinding)
   {
     ASTNode declaringNode = findDeclaringNode(node);
-    String className = getQualifiedTypeName(declaringTypeBinding);
-    String type = methodBinding.getReturnType().getQualifiedName();
-    String name = methodBinding.getName();
-    String parameters =
-      getParameterTypeNamesStr(methodBinding.getParameterTypes());
+    EntityHasher hasher = new EntityHasher();
 
+    // Lambdas of the same interface are told apart by their positions
     if (declaringNode instanceof LambdaExpression) {
-      return String.join(
-        " ", String.valueOf(declaringNode.getStartPosition()),
-        className, type, name, parameters
-      );
+      hasher.add(declaringNode.getStartPosition());
     }
 
-    return String.join(" ", className, type, name, parameters);
+    return addMethod(hasher, declaringTypeBinding, methodBinding).get();
   }
 
-  public static String getEnumConstantHashStr(
-    String enumName, String name)
-  {
-    return String.join(" ", enumName, name);
+  public static long getEnumConstantHash(String enumName, String name) {
+    return new EntityHasher().add(enumName).add(name).get();
+  }
+
+  public static long getFieldHash(String className, String type, String name) {
+    return new EntityHasher().add(className).add(type).add(name).get();
   }
 
-  public static String getFieldHashStr(
-    String className, String type, String name)
+  public static long getVariableHash(
+    long declaringNodeHash, String type, String name)
   {
-    return String.join(" ", className, type, name);
+    return new EntityHasher()
+      .add(declaringNodeHash).add(type).add(name).get();
   }
 
-  public static String getVariableHashStr(
-    String methodHashStr, String type, String name)
+  private static EntityHasher addMethod(
+    EntityHasher hasher, ITypeBinding declaringTypeBinding,
+    IMethodBinding methodBinding)
   {
-    return String.join(" ", methodHashStr, type, name);
+    hasher
+      .add(getQualifiedTypeName(declaringTypeBinding))
+      .add(methodBinding.getReturnType().getQualifiedName())
+      .add(methodBinding.getName());
+
+    ITypeBinding[] parameters = methodBinding.getParameterTypes();
+
+    // The count keeps the parameters apart from the following parts
+    hasher.add(parameters.length);
+
+    for (ITypeBinding parameter : parameters) {
+      hasher.add(parameter.getQualifiedName());
+    }
+
+    return hasher;
   }
 
-  public static int getMainTypeHashForInnerType(ASTNode node) {
+  public static long getMainTypeHashForInnerType(ASTNode node) {
     ASTNode mainType = node.getParent();
 
     if (!(mainType instanceof AbstractTypeDeclaration)) {
@@ -317,7 +319,7 @@ public abstract class Utils {
         ((AbstractTypeDeclaration) mainType).resolveBinding()
           .getQualifiedName().split("<", 2)[0];
 
-    return mainTypeQualifiedName.hashCode();
+    return EntityHasher.hash(mainTypeQualifiedName);
   }
 
   public static String typeParametersArrayToString(
@@ -1,7 +1,9 @@
 #ifndef CC_SERVICE_JAVA_JAVASERVICE_H
 #define CC_SERVICE_JAVA_JAVASERVICE_H
 
+#include <condition_variable>
 #include <memory>
+#include <mutex>
 #include <vector>
 
 #include <boost/filesystem.hpp>
@@ -44,9 +46,10 @@ public:
   }
 
   /**
-   * Creates the client interface.
+   * Creates the client interfaces. Each client has its own connection, so
+   * the Java server can process that many requests in parallel.
    */
-  void getClientInterface(int timeoutInMs_)
+  void getClientInterface(int timeoutInMs_, int clientNum_)
   {
     using Transport = apache::thrift::transport::TTransport;
     using BufferedTransport = apache::thrift::transport::TBufferedTransport;
@@ -57,35 +60,43 @@ public:
     std::string host = "localhost";
     int port = 9090;
 
-    std::shared_ptr<Transport>
-      socket(new Socket(host, port));
-    std::shared_ptr<Transport>
-      transport(new BufferedTransport(socket));
-    std::shared_ptr<Protocol>
-      protocol(new Protocol(transport));
-
     // Redirect Thrift output into std::stringstream
     apache::thrift::GlobalOutput.setOutputFunction(
       [](const char* x) {thrift_ss << x;});
 
     chrono::steady_clock::time_point begin = chrono::steady_clock::now();
 
-    while (!transport->isOpen()) {
-      try {
-        transport->open();
-      } catch (TransportException& ex) {
-        chrono::steady_clock::time_point current = chrono::steady_clock::now();
-        float elapsed_time =
-          chrono::duration_cast<chrono::milliseconds>(current - begin).count();
-
-        if (elapsed_time > timeoutInMs_) {
-          LOG(debug) << "Connection timeout, could not reach Java server on"
-                     << host << ":" << port;
-          apache::thrift::GlobalOutput.setOutputFunction(
-            apache::thrift::TOutput::errorTimeWrapper);
-          throw ex;
+    for (int i = 0; i < clientNum_; ++i)
+    {
+      std::shared_ptr<Transport>
+        socket(new Socket(host, port));
+      std::shared_ptr<Transport>
+        transport(new BufferedTransport(socket));
+      std::shared_ptr<Protocol>
+        protocol(new Protocol(transport));
+
+      while (!transport->isOpen()) {
+        try {
+          transport->open();
+        } catch (TransportException& ex) {
+          chrono::steady_clock::time_point current =
+            chrono::steady_clock::now();
+          float elapsed_time =
+            chrono::duration_cast<chrono::milliseconds>(
+              current - begin).count();
+
+          if (elapsed_time > timeoutInMs_) {
+            LOG(debug) << "Connection timeout, could not reach Java server on"
+                       << host << ":" << port;
+            apache::thrift::GlobalOutput.setOutputFunction(
+              apache::thrift::TOutput::errorTimeWrapper);
+            throw ex;
+          }
         }
       }
+
+      std::lock_guard<std::mutex> lock(_servicesMutex);
+      _services.emplace_back(new JavaServiceClient(protocol));
     }
 
     apache::thrift::GlobalOutput.setOutputFunction(
@@ -93,56 +104,56 @@ public:
 
     LOG(info) << "[javaparser] Java server started!";
 
-    _service.reset(new JavaServiceClient(protocol));
+    _freeService.notify_all();
   }
 
   void getAstNodeInfo(
     language::AstNodeInfo& return_,
     const core::AstNodeId& astNodeId_) override
   {
-    _service -> getAstNodeInfo(return_, astNodeId_);
+    ServiceLease(*this) -> getAstNodeInfo(return_, astNodeId_);
   }
 
   void getAstNodeInfoByPosition(
     language::AstNodeInfo& return_,
     const core::FilePosition& fpos_) override
   {
-    _service -> getAstNodeInfoByPosition(return_, fpos_);
+    ServiceLease(*this) -> getAstNodeInfoByPosition(return_, fpos_);
   }
 
   void getFileRange(
     core::FileRange& return_,
     const core::AstNodeId& astNodeId_) override
   {
-    _service -> getFileRange(return_, astNodeId_);
+    ServiceLease(*this) -> getFileRange(return_, astNodeId_);
   }
 
   void getProperties(
     std::map<std::string, std::string>& return_,
     const core::AstNodeId& astNodeId_) override
   {
-    _service -> getProperties(return_, astNodeId_);
+    ServiceLease(*this) -> getProperties(return_, astNodeId_);
   }
 
   void getDocumentation(
     std::string& return_,
     const core::AstNodeId& astNodeId_) override
   {
-    _service -> getDocumentation(return_, astNodeId_);
+    ServiceLease(*this) -> getDocumentation(return_, astNodeId_);
   }
 
   void getReferenceTypes(
     std::map<std::string, std::int32_t>& return_,
     const core::AstNodeId& astNodeId_) override
   {
-    _service -> getReferenceTypes(return_, astNodeId_);
+    ServiceLease(*this) -> getReferenceTypes(return_, astNodeId_);
   }
 
   std::int32_t getReferenceCount(
     const core::AstNodeId& astNodeId_,
     const std::int32_t referenceId_) override
   {
-    return _service -> getReferenceCount(astNodeId_, referenceId_);
+    return ServiceLease(*this) -> getReferenceCount(astNodeId_, referenceId_);
   }
 
   void getReferences(
@@ -151,20 +162,21 @@ public:
     const std::int32_t referenceId_,
     const std::vector<std::string>& tags_) override
   {
-    _service -> getReferences(return_, astNodeId_, referenceId_, tags_);
+    ServiceLease(*this) ->
+      getReferences(return_, astNodeId_, referenceId_, tags_);
   }
 
   void getFileReferenceTypes(
     std::map<std::string, std::int32_t>& return_) override
   {
-    _service -> getFileReferenceTypes(return_);
+    ServiceLease(*this) -> getFileReferenceTypes(return_);
   }
 
   std::int32_t getFileReferenceCount(
     const core::FileId& fileId_,
     const std::int32_t referenceId_) override
   {
-    return _service -> getFileReferenceCount(fileId_, referenceId_);
+    return ServiceLease(*this) -> getFileReferenceCount(fileId_, referenceId_);
   }
 
   void getFileReferences(
@@ -172,7 +184,7 @@ public:
     const core::FileId& fileId_,
     const std::int32_t referenceId_) override
   {
-    _service -> getFileReferences(return_, fileId_, referenceId_);
+    ServiceLease(*this) -> getFileReferences(return_, fileId_, referenceId_);
   }
 
   void getDiagramTypes(
@@ -180,7 +192,7 @@ public:
     const core::AstNodeId& astNodeId_
     ) override
   {
-    _service -> getDiagramTypes(return_, astNodeId_);
+    ServiceLease(*this) -> getDiagramTypes(return_, astNodeId_);
   }
 
   void getDiagram(
@@ -188,7 +200,7 @@ public:
     const core::AstNodeId& astNodeId_,
     const std::int32_t diagramId_) override
   {
-    _service -> getDiagram(return_, astNodeId_, diagramId_);
+    ServiceLease(*this) -> getDiagram(return_, astNodeId_, diagramId_);
   }
 
   void getSyntaxHighlight(
@@ -196,14 +208,56 @@ public:
   const core::FileRange& range_,
   const std::vector<std::string>& content_) override
   {
-    _service -> getSyntaxHighlight(return_, range_, content_);
+    ServiceLease(*this) -> getSyntaxHighlight(return_, range_, content_);
+  }
+
+  void getCacheStatistics(std::map<std::string, std::int64_t>& return_) override
+  {
+    ServiceLease(*this) -> getCacheStatistics(return_);
   }
 
 private:
   /**
-   * Service interface for IPC communication.
+   * Borrows a free client of the pool for the duration of a single call.
    */
-  std::unique_ptr<JavaServiceIf> _service;
+  class ServiceLease
+  {
+  public:
+    ServiceLease(JavaQueryHandler& handler_) : _handler(handler_)
+    {
+      std::unique_lock<std::mutex> lock(_handler._servicesMutex);
+
+      _handler._freeService.wait(
+        lock, [this] { return !_handler._services.empty(); });
+      _service = std::move(_handler._services.back());
+      _handler._services.pop_back();
+    }
+
+    ~ServiceLease()
+    {
+      std::lock_guard<std::mutex> lock(_handler._servicesMutex);
+
+      _handler._services.push_back(std::move(_service));
+      _handler._freeService.notify_one();
+    }
+
+    JavaServiceIf* operator->()
+    {
+      return _service.get();
+    }
+
+  private:
+    JavaQueryHandler& _handler;
+    std::unique_ptr<JavaServiceIf> _service;
+  };
+
+  /**
+   * Service interfaces for IPC communication which are not in use.
+   */
+  std::vector<std::unique_ptr<JavaServiceIf>> _services;
+
+  std::mutex _servicesMutex;
+  std::condition_variable _freeService;
 
   /**
    * Object to store Thrift messages during connecting to the Java server
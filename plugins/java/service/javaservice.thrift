@@ -55,4 +55,10 @@ service JavaService
   list<language.SyntaxHighlight> getSyntaxHighlight(
    1:common.FileRange range,
    2:list<string> content)
+
+  /**
+   * Returns the hit and miss counters and the estimated size in bytes of
+   * the result cache.
+   */
+  map<string, i64> getCacheStatistics()
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 #include <util/util.h>
 #include <util/dbutil.h>
+#include <util/graph.h>
 
 #include <model/file.h>
 #include <model/file-odb.hxx>
@@ -33,16 +34,18 @@ JavaServiceHandler::JavaServiceHandler(
 {
   _java_path = pr::search_path("java");
   std::string raw_db_context = getRawDbContext();
+  int threadNum = _context.options["jobs"].as<int>();
 
   std::vector<std::string> _java_args{
     "-DrawDbContext=" + raw_db_context,
+    "-DthreadNum=" + std::to_string(threadNum),
     "-jar",
     "../lib/java/javaservice.jar"
   };
   c = pr::child(_java_path, _java_args, pr::std_out > stdout);
 
   try {
-    javaQueryHandler.getClientInterface(25000);
+    javaQueryHandler.getClientInterface(25000, threadNum);
   } catch (TransportException& ex) {
     LOG(error) << "[javaservice] Starting service failed!";
   }
@@ -126,7 +129,11 @@ void JavaServiceHandler::getDiagram(
   const core::AstNodeId& astNodeId_,
   const std::int32_t diagramId_)
 {
-  javaQueryHandler.getDiagram(return_, astNodeId_, diagramId_);
+  std::string graph;
+  javaQueryHandler.getDiagram(graph, astNodeId_, diagramId_);
+
+  if (!graph.empty())
+    return_ = util::Graph::dotToSvg(graph);
 }
 
 void JavaServiceHandler::getDiagramLegend(
@@ -227,7 +234,6 @@ void JavaServiceHandler::getSyntaxHighlight(
   std::vector<SyntaxHighlight>& return_,
   const core::FileRange& range_)
 {
-  /*
   std::vector<std::string> content;
 
   _transaction([&, this]() {
@@ -246,8 +252,8 @@ void JavaServiceHandler::getSyntaxHighlight(
         content.push_back(line);
   });
 
-  javaQueryHandler.getSyntaxHighlight(return_, range_, content);
-  */
+  if (!content.empty())
+    javaQueryHandler.getSyntaxHighlight(return_, range_, content);
 }
 
 } // language
@@ -0,0 +1,131 @@
+package service.srcjava;
+
+import model.JavaAstNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+  Centered interval tree of the ranges of the AST nodes of a file. A node
+  contains a position if its range starts at or before it and ends after
+  it. Positions are compared as (line, column) pairs encoded into a single
+  long.
+*/
+public class AstNodeIntervalTree {
+  private final long center;
+  private final int size;
+  private final List<JavaAstNode> byStart;
+  private final List<JavaAstNode> byEnd;
+  private final AstNodeIntervalTree left;
+  private final AstNodeIntervalTree right;
+
+  /*
+    Nodes with an empty range, or with an unknown end position stored as -1,
+    cannot contain any position, so they are not indexed.
+  */
+  public static AstNodeIntervalTree build(List<JavaAstNode> javaAstNodes) {
+    return new AstNodeIntervalTree(
+      javaAstNodes.stream()
+        .filter(n -> getEnd(n) > getStart(n))
+        .collect(Collectors.toList()));
+  }
+
+  private AstNodeIntervalTree(List<JavaAstNode> javaAstNodes) {
+    List<JavaAstNode> leftNodes = new ArrayList<>();
+    List<JavaAstNode> rightNodes = new ArrayList<>();
+
+    this.center = getCenter(javaAstNodes);
+    this.size = javaAstNodes.size();
+    this.byStart = new ArrayList<>();
+
+    for (JavaAstNode javaAstNode : javaAstNodes) {
+      if (getEnd(javaAstNode) <= center) {
+        leftNodes.add(javaAstNode);
+      } else if (getStart(javaAstNode) > center) {
+        rightNodes.add(javaAstNode);
+      } else {
+        byStart.add(javaAstNode);
+      }
+    }
+
+    this.byEnd = new ArrayList<>(byStart);
+    byStart.sort(Comparator.comparingLong(AstNodeIntervalTree::getStart));
+    byEnd.sort(
+      Comparator.comparingLong(AstNodeIntervalTree::getEnd).reversed());
+
+    this.left = leftNodes.isEmpty() ? null : new AstNodeIntervalTree(leftNodes);
+    this.right =
+      rightNodes.isEmpty() ? null : new AstNodeIntervalTree(rightNodes);
+  }
+
+  // Number of the indexed nodes, including the ones of the subtrees
+  public int getSize() {
+    return size;
+  }
+
+  public List<JavaAstNode> query(long line, long column) {
+    List<JavaAstNode> javaAstNodes = new ArrayList<>();
+    long position = encode(line, column);
+    AstNodeIntervalTree tree = this;
+
+    // Every node of byStart contains the center of its tree
+    while (tree != null) {
+      if (position < tree.center) {
+        for (JavaAstNode javaAstNode : tree.byStart) {
+          if (getStart(javaAstNode) > position) {
+            break;
+          }
+          javaAstNodes.add(javaAstNode);
+        }
+
+        tree = tree.left;
+      } else {
+        for (JavaAstNode javaAstNode : tree.byEnd) {
+          if (getEnd(javaAstNode) <= position) {
+            break;
+          }
+          javaAstNodes.add(javaAstNode);
+        }
+
+        tree = tree.right;
+      }
+    }
+
+    return javaAstNodes;
+  }
+
+  /*
+    The median of the start positions splits the nodes into two halves, so
+    the depth of the tree is logarithmic in the number of nodes.
+  */
+  private static long getCenter(List<JavaAstNode> javaAstNodes) {
+    if (javaAstNodes.isEmpty()) {
+      return 0;
+    }
+
+    long[] starts = javaAstNodes.stream()
+      .mapToLong(AstNodeIntervalTree::getStart)
+      .sorted()
+      .toArray();
+
+    return starts[starts.length / 2];
+  }
+
+  private static long getStart(JavaAstNode javaAstNode) {
+    return encode(
+      javaAstNode.getLocation_range_start_line(),
+      javaAstNode.getLocation_range_start_column());
+  }
+
+  private static long getEnd(JavaAstNode javaAstNode) {
+    return encode(
+      javaAstNode.getLocation_range_end_line(),
+      javaAstNode.getLocation_range_end_column());
+  }
+
+  private static long encode(long line, long column) {
+    return (line << 32) + column;
+  }
+}
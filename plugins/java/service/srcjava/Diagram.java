@@ -0,0 +1,441 @@
+package service.srcjava;
+
+import model.JavaAstNode;
+import model.JavaInheritance;
+import model.JavaMemberType;
+import model.enums.AstType;
+import model.enums.MemberTypeKind;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static service.srcjava.JavaQueryFactory.*;
+
+/*
+  Builds the diagrams of an AST node as a Graphviz graph in the DOT
+  language, the C++ service renders them to SVG. The graph is explored
+  level by level: the nodes found on a level are labeled by a single query
+  and their statements are appended to the output at once. Only the
+  headers of the nodes are read, without their source text. Diagrams are
+  capped at MAX_NODES nodes, the number of omitted nodes is shown in the
+  label of the graph. An exploration running longer than TIMEOUT_MS stops,
+  and the graph built so far is returned.
+*/
+public class Diagram {
+  private static final int MAX_NODES = 100;
+  private static final int MAX_CALL_DEPTH = 2;
+  private static final int MAX_MEMBERS = 50;
+  private static final int MAX_LABEL_LENGTH = 40;
+  private static final long TIMEOUT_MS = 10000;
+
+  private static final String CENTER_NODE =
+    "style=\"filled\", fillcolor=\"gold\"";
+  private static final String CALLEE_NODE =
+    "style=\"filled\", fillcolor=\"lightblue\"";
+  private static final String CALLER_NODE =
+    "style=\"filled\", fillcolor=\"coral\"";
+  private static final String CALLEE_EDGE = "color=\"blue\"";
+  private static final String CALLER_EDGE = "color=\"red\"";
+  private static final String CENTER_CLASS_NODE =
+    "style=\"filled\", fillcolor=\"gold\", shape=\"box\"";
+  private static final String CLASS_NODE = "shape=\"box\"";
+  private static final String USED_CLASS_EDGE =
+    "style=\"dashed\", color=\"mediumpurple\"";
+  private static final String INHERIT_CLASS_EDGE = "arrowhead=\"empty\"";
+
+  private final StringBuilder dot;
+  private final Set<Long> nodeIds;
+  private final Set<List<Long>> edges;
+  private final long deadline;
+  private final Set<Long> omittedNodeIds;
+  private boolean timedOut;
+
+  public Diagram() {
+    this.dot = new StringBuilder();
+    this.nodeIds = new HashSet<>();
+    this.edges = new HashSet<>();
+    this.omittedNodeIds = new HashSet<>();
+    this.deadline = System.currentTimeMillis() + TIMEOUT_MS;
+  }
+
+  public String getMethodCallDiagram(JavaAstNode javaAstNode) {
+    JavaAstNode center = queryDefinition(javaAstNode);
+
+    if (center == null) {
+      return "";
+    }
+
+    begin("LR");
+    addNodes(Collections.singletonList(center), CENTER_NODE);
+
+    List<JavaAstNode> callees = Collections.singletonList(center);
+    List<JavaAstNode> callers = callees;
+
+    for (int depth = 0; depth < MAX_CALL_DEPTH; ++depth) {
+      callees = addRelatedNodes(
+        callees, JavaQueryFactory::queryCalleeNodes, false,
+        CALLEE_NODE, CALLEE_EDGE);
+      callers = addRelatedNodes(
+        callers, JavaQueryFactory::queryCallerNodes, true,
+        CALLER_NODE, CALLER_EDGE);
+    }
+
+    return end();
+  }
+
+  public String getDetailedClassDiagram(JavaAstNode javaAstNode) {
+    JavaAstNode center = queryDefinition(javaAstNode);
+
+    if (center == null) {
+      return "";
+    }
+
+    begin("BT");
+
+    List<JavaMemberType> members =
+      queryJavaMemberTypes(
+        center, false,
+        MemberTypeKind.FIELD, MemberTypeKind.CONSTRUCTOR, MemberTypeKind.METHOD
+      ).stream()
+        .filter(m -> isDeclOrDef(m.getMemberAstNode()))
+        .collect(Collectors.toList());
+    Set<Long> entityHashes = members.stream()
+      .map(m -> m.getMemberAstNode().getEntityHash())
+      .collect(Collectors.toSet());
+
+    entityHashes.add(center.getEntityHash());
+
+    Map<Long, String> names = queryJavaEntityNames(entityHashes);
+
+    nodeIds.add(center.getId());
+    dot
+      .append("  \"").append(center.getId()).append("\" [id=\"")
+      .append(center.getId()).append("\", shape=\"none\", label=<")
+      .append("<table border=\"0\" cellborder=\"1\" cellspacing=\"0\">")
+      .append("<tr><td bgcolor=\"gold\"><b>")
+      .append(escapeHtml(getName(center, names)))
+      .append("</b></td></tr>");
+    appendMembers(members, names, false);
+    appendMembers(members, names, true);
+    dot.append("</table>>];\n");
+
+    addInheritances(center);
+
+    return end();
+  }
+
+  public String getClassCollaborationDiagram(JavaAstNode javaAstNode) {
+    JavaAstNode center = queryDefinition(javaAstNode);
+
+    if (center == null) {
+      return "";
+    }
+
+    begin("BT");
+    addNodes(Collections.singletonList(center), CENTER_CLASS_NODE);
+
+    List<JavaAstNode> relatedTypes = new ArrayList<>();
+
+    relatedTypes.add(center);
+    relatedTypes.addAll(addInheritances(center));
+
+    // Field types of the center and of its direct bases and derived types
+    Map<JavaAstNode, List<JavaAstNode>> fields = new LinkedHashMap<>();
+
+    for (JavaAstNode relatedType : relatedTypes) {
+      if (isPastDeadline()) {
+        break;
+      }
+
+      fields.put(
+        relatedType,
+        queryJavaMemberTypes(relatedType, false, MemberTypeKind.FIELD)
+          .stream()
+          .map(JavaMemberType::getMemberAstNode)
+          .filter(Diagram::isDeclOrDef)
+          .collect(Collectors.toList()));
+    }
+
+    Set<Long> fieldHashes = fields.values().stream()
+      .flatMap(List::stream)
+      .map(JavaAstNode::getEntityHash)
+      .collect(Collectors.toSet());
+    Map<Long, String> fieldNames = queryJavaEntityNames(fieldHashes);
+    Map<Long, Long> fieldTypes = queryJavaVariableTypes(fieldHashes);
+    Map<Long, JavaAstNode> types = new HashMap<>();
+
+    queryJavaAstNodeHeaders(
+      new HashSet<>(fieldTypes.values()), AstType.DEFINITION)
+      .forEach(t -> types.putIfAbsent(t.getEntityHash(), t));
+    addNodes(new ArrayList<>(types.values()), CLASS_NODE);
+
+    fields.forEach((relatedType, typeFields) -> {
+      Map<JavaAstNode, List<String>> labels = new LinkedHashMap<>();
+
+      typeFields.forEach(f -> {
+        JavaAstNode type = types.get(fieldTypes.get(f.getEntityHash()));
+
+        if (type != null) {
+          labels.computeIfAbsent(type, t -> new ArrayList<>())
+            .add(fieldNames.getOrDefault(f.getEntityHash(), ""));
+        }
+      });
+
+      labels.forEach((type, names) ->
+        addEdge(
+          relatedType, type,
+          USED_CLASS_EDGE + ", label=\"" +
+            escape(String.join(", ", names)) + "\""));
+    });
+
+    return end();
+  }
+
+  private void begin(String rankDir) {
+    dot
+      .append("digraph G {\n")
+      .append("  rankdir=\"").append(rankDir).append("\";\n")
+      .append("  node [fontsize=\"11\"];\n")
+      .append("  edge [fontsize=\"11\"];\n");
+  }
+
+  private String end() {
+    List<String> notes = new ArrayList<>();
+
+    if (!omittedNodeIds.isEmpty()) {
+      notes.add(omittedNodeIds.size() + " more nodes are not shown");
+    }
+
+    if (timedOut) {
+      notes.add("the diagram was cut at its time limit");
+    }
+
+    if (!notes.isEmpty()) {
+      dot
+        .append("  label=\"").append(String.join(", ", notes))
+        .append("\";\n")
+        .append("  labelloc=\"b\";\n");
+    }
+
+    return dot.append("}\n").toString();
+  }
+
+  /*
+    Adds the nodes related to the nodes of the previous level, and returns
+    the ones not shown before, these are the next level. The whole level is
+    looked up by one batch query. Nothing is queried once the graph is full
+    or the time limit has passed.
+  */
+  private List<JavaAstNode> addRelatedNodes(
+    List<JavaAstNode> javaAstNodes,
+    Function<List<JavaAstNode>, Map<JavaAstNode, List<JavaAstNode>>> query,
+    boolean reverse, String nodeStyle, String edgeStyle)
+  {
+    if (
+      javaAstNodes.isEmpty() || nodeIds.size() >= MAX_NODES ||
+      isPastDeadline())
+    {
+      return Collections.emptyList();
+    }
+
+    Map<JavaAstNode, List<JavaAstNode>> relatedNodes =
+      query.apply(javaAstNodes);
+
+    List<JavaAstNode> added = addNodes(
+      relatedNodes.values().stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toList()),
+      nodeStyle);
+
+    relatedNodes.forEach((javaAstNode, related) ->
+      related.forEach(r -> {
+        if (reverse) {
+          addEdge(r, javaAstNode, edgeStyle);
+        } else {
+          addEdge(javaAstNode, r, edgeStyle);
+        }
+      }));
+
+    return added;
+  }
+
+  // Direct bases and derived types of a type, the ones shown are returned
+  private List<JavaAstNode> addInheritances(JavaAstNode type) {
+    if (isPastDeadline()) {
+      return Collections.emptyList();
+    }
+
+    List<JavaAstNode> bases = addNodes(
+      queryDefinitions(
+        queryInheritancesDerived(type).stream()
+          .map(JavaInheritance::getBase)
+          .collect(Collectors.toSet())),
+      CLASS_NODE);
+    List<JavaAstNode> derived = addNodes(
+      queryDefinitions(
+        queryInheritancesBase(type).stream()
+          .map(JavaInheritance::getDerived)
+          .collect(Collectors.toSet())),
+      CLASS_NODE);
+
+    bases.forEach(b -> addEdge(type, b, INHERIT_CLASS_EDGE));
+    derived.forEach(d -> addEdge(d, type, INHERIT_CLASS_EDGE));
+
+    List<JavaAstNode> inheritances = new ArrayList<>(bases);
+    inheritances.addAll(derived);
+
+    return inheritances;
+  }
+
+  private List<JavaAstNode> addNodes(
+    List<JavaAstNode> javaAstNodes, String style)
+  {
+    List<JavaAstNode> added = new ArrayList<>();
+
+    for (JavaAstNode javaAstNode : javaAstNodes) {
+      if (nodeIds.contains(javaAstNode.getId())) {
+        continue;
+      }
+
+      if (nodeIds.size() < MAX_NODES) {
+        nodeIds.add(javaAstNode.getId());
+        added.add(javaAstNode);
+      } else {
+        omittedNodeIds.add(javaAstNode.getId());
+      }
+    }
+
+    Map<Long, String> names = queryJavaEntityNames(
+      added.stream()
+        .map(JavaAstNode::getEntityHash)
+        .collect(Collectors.toSet()));
+
+    added.forEach(n ->
+      dot
+        .append("  \"").append(n.getId()).append("\" [id=\"")
+        .append(n.getId()).append("\", label=\"")
+        .append(escape(getName(n, names))).append("\", ")
+        .append(style).append("];\n"));
+
+    return added;
+  }
+
+  private void addEdge(JavaAstNode from, JavaAstNode to, String style) {
+    if (
+      !nodeIds.contains(from.getId()) || !nodeIds.contains(to.getId()) ||
+      !edges.add(Arrays.asList(from.getId(), to.getId())))
+    {
+      return;
+    }
+
+    dot
+      .append("  \"").append(from.getId()).append("\" -> \"")
+      .append(to.getId()).append("\" [").append(style).append("];\n");
+  }
+
+  // Fields, or constructors and methods in one cell, one member per line
+  private void appendMembers(
+    List<JavaMemberType> members, Map<Long, String> names, boolean methods)
+  {
+    List<JavaMemberType> cellMembers = members.stream()
+      .filter(m -> (m.getKind() != MemberTypeKind.FIELD) == methods)
+      .collect(Collectors.toList());
+
+    dot.append("<tr><td align=\"left\" balign=\"left\">");
+
+    cellMembers.stream().limit(MAX_MEMBERS).forEach(m -> {
+      JavaAstNode member = m.getMemberAstNode();
+
+      dot
+        .append(getVisibilitySymbol(m))
+        .append(' ')
+        .append(escapeHtml(getName(member, names)))
+        .append(methods ? "()" : "")
+        .append("<br/>");
+    });
+
+    if (cellMembers.size() > MAX_MEMBERS) {
+      dot
+        .append("... ").append(cellMembers.size() - MAX_MEMBERS)
+        .append(" more<br/>");
+    }
+
+    dot.append("</td></tr>");
+  }
+
+  private boolean isPastDeadline() {
+    if (System.currentTimeMillis() > deadline) {
+      timedOut = true;
+    }
+
+    return timedOut;
+  }
+
+  private static JavaAstNode queryDefinition(JavaAstNode javaAstNode) {
+    if (javaAstNode.getAstType() == AstType.DEFINITION) {
+      return javaAstNode;
+    }
+
+    List<JavaAstNode> definitions = queryJavaAstNodeHeaders(
+      Collections.singletonList(javaAstNode.getDefEntityHash()),
+      AstType.DEFINITION);
+
+    return definitions.isEmpty() ? null : definitions.get(0);
+  }
+
+  private static List<JavaAstNode> queryDefinitions(Set<Long> entityHashes) {
+    Map<Long, JavaAstNode> definitions = new LinkedHashMap<>();
+
+    queryJavaAstNodeHeaders(entityHashes, AstType.DEFINITION)
+      .forEach(d -> definitions.putIfAbsent(d.getEntityHash(), d));
+
+    return new ArrayList<>(definitions.values());
+  }
+
+  private static boolean isDeclOrDef(JavaAstNode javaAstNode) {
+    return
+      javaAstNode.getAstType() == AstType.DECLARATION ||
+      javaAstNode.getAstType() == AstType.DEFINITION;
+  }
+
+  private static String getName(
+    JavaAstNode javaAstNode, Map<Long, String> names)
+  {
+    String name = names.get(javaAstNode.getEntityHash());
+
+    if (name != null) {
+      return name;
+    }
+
+    // The value of a definition is its whole source text
+    String value =
+      javaAstNode.getAstValue() == null ? "" : javaAstNode.getAstValue();
+    String firstLine = value.split("\n", 2)[0].trim();
+
+    return firstLine.length() > MAX_LABEL_LENGTH ?
+      firstLine.substring(0, MAX_LABEL_LENGTH) + "..." : firstLine;
+  }
+
+  private static char getVisibilitySymbol(JavaMemberType javaMemberType) {
+    switch (javaMemberType.getVisibility()) {
+      case PUBLIC:
+        return '+';
+      case PROTECTED:
+        return '#';
+      case PRIVATE:
+        return '-';
+      default:
+        return '~';
+    }
+  }
+
+  private static String escape(String string) {
+    return string.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private static String escapeHtml(String string) {
+    return string
+      .replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+}
@@ -0,0 +1,40 @@
+package service.srcjava;
+
+import model.EMFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class EntityManagerPool {
+  private final EMFactory emf;
+  private final ConcurrentLinkedQueue<EntityManager> idle;
+
+  public EntityManagerPool(EMFactory emf) {
+    this.emf = emf;
+    this.idle = new ConcurrentLinkedQueue<>();
+  }
+
+  /*
+    At most as many entity managers are created as many requests are
+    processed at the same time, so the pool needs no upper bound.
+  */
+  public EntityManager borrow() {
+    EntityManager em = idle.poll();
+
+    if (em == null) {
+      em = emf.createEntityManager();
+
+      // The service never writes, so queries need not flush anything first
+      em.setFlushMode(FlushModeType.COMMIT);
+    }
+
+    return em;
+  }
+
+  public void giveBack(EntityManager em) {
+    // The persistence context would otherwise grow with every request
+    em.clear();
+    idle.offer(em);
+  }
+}
@@ -0,0 +1,24 @@
+package service.srcjava;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TProtocol;
+
+public class EntityManagerProcessor implements TProcessor {
+  private final TProcessor processor;
+
+  public EntityManagerProcessor(TProcessor processor) {
+    this.processor = processor;
+  }
+
+  @Override
+  public void process(TProtocol in, TProtocol out) throws TException {
+    JavaQueryFactory.openEntityManager();
+
+    try {
+      processor.process(in, out);
+    } finally {
+      JavaQueryFactory.closeEntityManager();
+    }
+  }
+}
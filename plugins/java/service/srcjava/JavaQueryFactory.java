@@ -4,267 +4,418 @@ import cc.service.core.FilePosition;
 import cc.service.core.FileRange;
 import model.*;
 import model.enums.AstType;
+import model.enums.ClosureKind;
 import model.enums.MemberTypeKind;
 import model.enums.RelationKind;
 import model.enums.SymbolType;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
-import javax.persistence.criteria.*;
+import javax.persistence.TypedQuery;
 import java.util.*;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import static logger.Logger.LOGGER;
 
 public abstract class JavaQueryFactory {
-  private static final EntityManager em;
-  private static final CriteriaBuilder cb;
+  private static final EntityManagerPool emPool;
+  private static final ThreadLocal<EntityManager> em;
+  private static final int IN_BATCH_SIZE = 500;
+  private static final long MAX_INDEXED_NODES = 1000000;
+  private static final LinkedHashMap<Long, AstNodeIntervalTree>
+    astNodeIntervalTrees;
+  private static long indexedNodes;
+  private static final long GENERATION_CHECK_INTERVAL = 1000;
+  private static long parseGeneration;
+  private static long generationCheckTime;
 
   static {
     EMFactory emf = new EMFactory(System.getProperty("rawDbContext"), false);
-    em = emf.createEntityManager();
-    cb = em.getCriteriaBuilder();
+    emPool = new EntityManagerPool(emf);
+    em = new ThreadLocal<>();
+    astNodeIntervalTrees = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /*
+    Entity managers are not thread-safe, so every request processed by a
+    worker thread of the server borrows its own one from the pool, see
+    EntityManagerProcessor.
+  */
+  public static void openEntityManager() {
+    em.set(emPool.borrow());
+  }
+
+  public static void closeEntityManager() {
+    emPool.giveBack(em.get());
+    em.remove();
+  }
+
+  /*
+    The lookups are named queries of the model classes. These are parsed
+    once when the persistence unit is deployed, so only the parameters are
+    bound on each call and the SQL text of a lookup never changes.
+    Results are read-only, so they are not registered for change tracking.
+  */
+  private static <T> TypedQuery<T> createNamedQuery(
+    String name, Class<T> resultClass)
+  {
+    return em.get().createNamedQuery(name, resultClass)
+      .setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+  }
+
+  /*
+    Set-based lookups bind their keys as the parameter of an IN clause.
+    Databases limit the number of bound parameters of a statement, so the
+    keys are sent in batches of IN_BATCH_SIZE.
+  */
+  private static <P, R> List<R> queryInBatches(
+    Collection<P> keys, Function<List<P>, List<R>> query)
+  {
+    List<P> keyList = new ArrayList<>(keys);
+    List<R> results = new ArrayList<>();
+
+    for (int i = 0; i < keyList.size(); i += IN_BATCH_SIZE) {
+      results.addAll(
+        query.apply(
+          keyList.subList(i, Math.min(i + IN_BATCH_SIZE, keyList.size()))));
+    }
+
+    return results;
+  }
+
+  private static int count(TypedQuery<Long> query) {
+    return query.getSingleResult().intValue();
   }
 
   public static List<JavaAstNode> queryJavaAstNodeByPosition(
     FilePosition fpos)
   {
     long fileId = Long.parseUnsignedLong(fpos.file);
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    int line = fpos.pos.line;
-    int column = fpos.pos.column;
-    Path<Long> locationFile =
-      root.get("location_file");
-    Path<Long> startLine =
-      root.get("location_range_start_line");
-    Path<Long> endLine =
-      root.get("location_range_end_line");
-    Path<Long> startColumn =
-      root.get("location_range_start_column");
-    Path<Long> endColumn =
-      root.get("location_range_end_column");
-
-    Predicate sameFile = cb.equal(locationFile, fileId);
-    Predicate startPosLessEqualPos =
-      cb.or(
-        cb.and(cb.equal(startLine, line), cb.le(startColumn, column)),
-        cb.lt(startLine, line)
-      );
-    Predicate posLessThanEndPos =
-      cb.or(
-        cb.and(cb.equal(endLine, line), cb.gt(endColumn, column)),
-        cb.gt(endLine, line)
-      );
 
-    cr
-      .select(root)
-      .where(cb.and(sameFile, startPosLessEqualPos, posLessThanEndPos));
+    return getAstNodeIntervalTree(fileId)
+      .query(fpos.pos.line, fpos.pos.column);
+  }
+
+  /*
+    Position lookups are answered from an interval tree of the file, built
+    on the first lookup in it. The trees of the most recently used files
+    are kept, together indexing at most MAX_INDEXED_NODES nodes, since the
+    size of a file and so of its tree varies a lot.
+  */
+  private static AstNodeIntervalTree getAstNodeIntervalTree(long fileId) {
+    getParseGeneration();
+
+    AstNodeIntervalTree tree;
+
+    synchronized (astNodeIntervalTrees) {
+      tree = astNodeIntervalTrees.get(fileId);
+    }
+
+    if (tree == null) {
+      tree = AstNodeIntervalTree.build(
+        createNamedQuery("JavaAstNode.headersInFile", JavaAstNode.class)
+          .setParameter("file", fileId)
+          .getResultList());
 
-    return em.createQuery(cr).getResultList();
+      putAstNodeIntervalTree(fileId, tree);
+    }
+
+    return tree;
   }
 
-  public static List<JavaAstNode> queryJavaAstNodesByFileRange(
-    FileRange fileRange)
+  private static void putAstNodeIntervalTree(
+    long fileId, AstNodeIntervalTree tree)
   {
+    synchronized (astNodeIntervalTrees) {
+      AstNodeIntervalTree previous = astNodeIntervalTrees.remove(fileId);
+
+      if (previous != null) {
+        indexedNodes -= previous.getSize();
+      }
+
+      // A tree larger than the whole limit is used once and not kept
+      if (tree.getSize() > MAX_INDEXED_NODES) {
+        return;
+      }
+
+      astNodeIntervalTrees.put(fileId, tree);
+      indexedNodes += tree.getSize();
+
+      Iterator<AstNodeIntervalTree> eldest =
+        astNodeIntervalTrees.values().iterator();
+
+      while (indexedNodes > MAX_INDEXED_NODES) {
+        indexedNodes -= eldest.next().getSize();
+        eldest.remove();
+      }
+    }
+  }
+
+  /*
+    The generation of the tables, see JavaParseGeneration, is read at most
+    once per GENERATION_CHECK_INTERVAL milliseconds. The interval trees of
+    an earlier generation are dropped.
+  */
+  public static synchronized long getParseGeneration() {
+    long now = System.currentTimeMillis();
+
+    if (now - generationCheckTime >= GENERATION_CHECK_INTERVAL) {
+      long generation = JavaParseGeneration.get(em.get());
+
+      generationCheckTime = now;
+
+      if (generation != parseGeneration) {
+        parseGeneration = generation;
+
+        synchronized (astNodeIntervalTrees) {
+          astNodeIntervalTrees.clear();
+          indexedNodes = 0;
+        }
+      }
+    }
+
+    return parseGeneration;
+  }
+
+  /*
+    Rows of the start line, start column, end line, end column, symbol type
+    and AST type of the nodes, ordered by their start positions.
+  */
+  public static List<Object[]> queryJavaAstNodeRanges(FileRange fileRange) {
     long fileId = Long.parseUnsignedLong(fileRange.file);
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    long rStartLine = fileRange.range.startpos.line;
-    long rEndLine = fileRange.range.endpos.line;
-
-    Path<Long> locationFile =
-      root.get("location_file");
-    Path<Long> startLine =
-      root.get("location_range_start_line");
-    Path<Long> endLine =
-      root.get("location_range_end_line");
-    Path<Boolean> visibility = root.get("visibleInSourceCode");
-
-    Predicate sameFile = cb.equal(locationFile, fileId);
-    Predicate startLineGreaterEqualLine = cb.ge(startLine, rStartLine);
-    Predicate endLineLessThanLine = cb.lt(endLine, rEndLine);
-    Predicate endLineNotEqualInitial = cb.notEqual(endLine, (long) -1);
-    Predicate visibleInSourceCode = cb.isTrue(visibility);
-
-    cr
-      .select(root)
-      .where(
-        cb.and(
-          sameFile, startLineGreaterEqualLine, endLineLessThanLine,
-          endLineNotEqualInitial, visibleInSourceCode
-        )
-      );
 
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery("JavaAstNode.rangesByFileRange", Object[].class)
+      .setParameter("file", fileId)
+      .setParameter("startLine", (long) fileRange.range.startpos.line)
+      .setParameter("endLine", (long) fileRange.range.endpos.line)
+      .getResultList();
   }
 
   public static JavaAstNode queryJavaAstNode(long javaAstNodeId) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
+    return createNamedQuery("JavaAstNode.byId", JavaAstNode.class)
+      .setParameter("id", javaAstNodeId)
+      .getSingleResult();
+  }
 
-    cr
-      .select(root)
-      .where(cb.equal(root.get("id"), javaAstNodeId));
+  // The node without its astValue, see the constructors of JavaAstNode
+  public static JavaAstNode queryJavaAstNodeHeader(long javaAstNodeId) {
+    return createNamedQuery("JavaAstNode.headerById", JavaAstNode.class)
+      .setParameter("id", javaAstNodeId)
+      .getSingleResult();
+  }
 
-    return em.createQuery(cr).getSingleResult();
+  public static String queryAstValue(long javaAstNodeId) {
+    return createNamedQuery("JavaAstNode.valueById", String.class)
+      .setParameter("id", javaAstNodeId)
+      .getSingleResult();
   }
 
-  public static List<JavaAstNode> queryJavaAstNodes(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
+  // Sets the astValue of node headers, read for all of them at once
+  public static List<JavaAstNode> queryAstValues(
+    List<JavaAstNode> javaAstNodes)
+  {
+    Map<Long, String> values = new HashMap<>();
 
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
+    queryInBatches(
+      javaAstNodes.stream()
+        .map(JavaAstNode::getId)
+        .collect(Collectors.toSet()),
+      ids ->
+        createNamedQuery("JavaAstNode.valuesByIds", Object[].class)
+          .setParameter("ids", ids)
+          .getResultList()
+    ).forEach(row -> values.put((Long) row[0], (String) row[1]));
 
-    return em.createQuery(cr).getResultList();
-  }
+    javaAstNodes.forEach(n -> n.setAstValue(values.get(n.getId())));
 
-  public static List<JavaAstNode> queryJavaAstNodes(long entityHash) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
+    return javaAstNodes;
+  }
 
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), entityHash));
+  public static List<JavaAstNode> queryJavaAstNodes(JavaAstNode javaAstNode) {
+    return queryJavaAstNodes(javaAstNode.getEntityHash());
+  }
 
-    return em.createQuery(cr).getResultList();
+  public static List<JavaAstNode> queryJavaAstNodes(long entityHash) {
+    return createNamedQuery("JavaAstNode.byEntityHash", JavaAstNode.class)
+      .setParameter("entityHash", entityHash)
+      .getResultList();
   }
 
   public static <T extends Collection<? extends JavaEntity>>
   List<JavaAstNode> queryJavaAstNodes(T javaEntities) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    cr
-      .select(root)
-      .where(
-        root.get("id")
-          .in(javaEntities.stream()
-            .map(JavaEntity::getAstNodeId)
-            .collect(Collectors.toList())
-          )
-      );
+    if (javaEntities.isEmpty()) {
+      return new ArrayList<>();
+    }
 
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery("JavaAstNode.byIds", JavaAstNode.class)
+      .setParameter(
+        "ids",
+        javaEntities.stream()
+          .map(JavaEntity::getAstNodeId)
+          .collect(Collectors.toList())
+      )
+      .getResultList();
   }
 
   public static List<JavaAstNode> queryJavaAstNodes(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaAstNode> cr,
-    Root<JavaAstNode> root, Predicate customPredicate)
+    long entityHash, AstType... astTypes)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery(
+        "JavaAstNode.byEntityHashAndAstTypes", JavaAstNode.class)
+      .setParameter("entityHash", entityHash)
+      .setParameter("astTypes", Arrays.asList(astTypes))
+      .getResultList();
   }
 
   public static List<JavaAstNode> queryJavaAstNodes(
-    long entityHash, CriteriaQuery<JavaAstNode> cr,
-    Root<JavaAstNode> root, Predicate customPredicate)
+    Collection<Long> entityHashes, AstType... astTypes)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), entityHash
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
+    return queryInBatches(
+      entityHashes,
+      hashes ->
+        createNamedQuery(
+            "JavaAstNode.byEntityHashesAndAstTypes", JavaAstNode.class)
+          .setParameter("entityHashes", hashes)
+          .setParameter("astTypes", Arrays.asList(astTypes))
+          .getResultList());
+  }
+
+  // The nodes without their astValue, see the constructors of JavaAstNode
+  public static List<JavaAstNode> queryJavaAstNodeHeaders(
+    Collection<Long> entityHashes, AstType... astTypes)
+  {
+    return queryInBatches(
+      entityHashes,
+      hashes ->
+        createNamedQuery(
+            "JavaAstNode.headersByEntityHashesAndAstTypes", JavaAstNode.class)
+          .setParameter("entityHashes", hashes)
+          .setParameter("astTypes", Arrays.asList(astTypes))
+          .getResultList());
+  }
 
-    return em.createQuery(cr).getResultList();
+  public static int countJavaAstNodes(long entityHash, AstType... astTypes) {
+    return count(
+      createNamedQuery("JavaAstNode.countByEntityHashAndAstTypes", Long.class)
+        .setParameter("entityHash", entityHash)
+        .setParameter("astTypes", Arrays.asList(astTypes)));
   }
 
   public static List<JavaAstNode> queryJavaAstNodesFromDef(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaAstNode> cr,
-    Root<JavaAstNode> root, Predicate customPredicate)
+    long defEntityHash, AstType... astTypes)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("defEntityHash"), javaAstNode.getDefEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
+    return createNamedQuery(
+        "JavaAstNode.byDefEntityHashAndAstTypes", JavaAstNode.class)
+      .setParameter("defEntityHash", defEntityHash)
+      .setParameter("astTypes", Arrays.asList(astTypes))
+      .getResultList();
+  }
 
-    return em.createQuery(cr).getResultList();
+  public static int countJavaAstNodesFromDef(
+    long defEntityHash, AstType... astTypes)
+  {
+    return count(
+      createNamedQuery(
+          "JavaAstNode.countByDefEntityHashAndAstTypes", Long.class)
+        .setParameter("defEntityHash", defEntityHash)
+        .setParameter("astTypes", Arrays.asList(astTypes)));
   }
 
   public static List<JavaAstNode> queryJavaAstNodesInFile(long fileId) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("location_file"), fileId));
-
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery("JavaAstNode.inFile", JavaAstNode.class)
+      .setParameter("file", fileId)
+      .getResultList();
   }
 
   public static List<JavaAstNode> queryJavaAstNodesInFile(
-    long fileId, CriteriaQuery<JavaAstNode> cr,
-    Root<JavaAstNode> root, Predicate customPredicate)
+    long fileId, SymbolType symbolType, AstType... astTypes)
+  {
+    return createNamedQuery(
+        "JavaAstNode.inFileBySymbolTypeAndAstTypes", JavaAstNode.class)
+      .setParameter("file", fileId)
+      .setParameter("symbolType", symbolType)
+      .setParameter("astTypes", Arrays.asList(astTypes))
+      .getResultList();
+  }
+
+  public static int countJavaAstNodesInFile(
+    long fileId, SymbolType symbolType, AstType... astTypes)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("location_file"), fileId
-    );
+    return count(
+      createNamedQuery(
+          "JavaAstNode.countInFileBySymbolTypeAndAstTypes", Long.class)
+        .setParameter("file", fileId)
+        .setParameter("symbolType", symbolType)
+        .setParameter("astTypes", Arrays.asList(astTypes)));
+  }
 
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
+  // Files parsed by earlier versions of the parser have no summary
+  public static JavaFileSummary queryJavaFileSummary(long fileId) {
+    List<JavaFileSummary> javaFileSummaries =
+      createNamedQuery("JavaFileSummary.byId", JavaFileSummary.class)
+        .setParameter("id", fileId)
+        .getResultList();
 
-    return em.createQuery(cr).getResultList();
+    return javaFileSummaries.isEmpty() ? null : javaFileSummaries.get(0);
   }
 
-  public static List<JavaAstNode> queryJavaImportNodesInFile(long fileId) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
+  public static List<JavaAstNode> queryJavaAstNodesByIds(
+    Collection<Long> javaAstNodeIds)
+  {
+    return queryInBatches(
+      javaAstNodeIds,
+      ids ->
+        createNamedQuery("JavaAstNode.byIds", JavaAstNode.class)
+          .setParameter("ids", ids)
+          .getResultList());
+  }
 
-    Predicate predicate = cb.equal(root.get("symbolType"), SymbolType.FILE);
+  public static List<JavaAstNode> queryJavaImportNodesInFile(long fileId) {
+    return createNamedQuery("JavaAstNode.inFileBySymbolType", JavaAstNode.class)
+      .setParameter("file", fileId)
+      .setParameter("symbolType", SymbolType.FILE)
+      .getResultList();
+  }
 
-    return queryJavaAstNodesInFile(fileId, cr, root, predicate);
+  public static int countJavaImportNodesInFile(long fileId) {
+    return count(
+      createNamedQuery("JavaAstNode.countInFileBySymbolType", Long.class)
+        .setParameter("file", fileId)
+        .setParameter("symbolType", SymbolType.FILE));
   }
 
   public static List<JavaAstNode> queryJavaTypeNodesInFile(long fileId) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    Predicate predicate =
-      cb.and(
-        cb.equal(root.get("symbolType"), SymbolType.TYPE),
-        cb.equal(root.get("astType"), AstType.DEFINITION)
-      );
+    return queryJavaAstNodesInFile(
+      fileId, SymbolType.TYPE, AstType.DEFINITION);
+  }
 
-    return queryJavaAstNodesInFile(fileId, cr, root, predicate);
+  public static int countJavaTypeNodesInFile(long fileId) {
+    return countJavaAstNodesInFile(
+      fileId, SymbolType.TYPE, AstType.DEFINITION);
   }
 
   public static List<JavaAstNode> queryJavaConstructorNodesInFile(long fileId) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    Predicate predicate =
-      cb.and(
-        cb.equal(root.get("symbolType"), SymbolType.CONSTRUCTOR),
-        cb.equal(root.get("astType"), AstType.DEFINITION)
-      );
+    return queryJavaAstNodesInFile(
+      fileId, SymbolType.CONSTRUCTOR, AstType.DEFINITION);
+  }
 
-    return queryJavaAstNodesInFile(fileId, cr, root, predicate);
+  public static int countJavaConstructorNodesInFile(long fileId) {
+    return countJavaAstNodesInFile(
+      fileId, SymbolType.CONSTRUCTOR, AstType.DEFINITION);
   }
 
   public static List<JavaAstNode> queryJavaMethodNodesInFile(long fileId) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    Predicate predicate =
-      cb.and(
-        cb.equal(root.get("symbolType"), SymbolType.METHOD),
-        cb.or(
-          cb.equal(root.get("astType"), AstType.DEFINITION),
-          cb.equal(root.get("astType"), AstType.DECLARATION)
-        )
-      );
+    return queryJavaAstNodesInFile(
+      fileId, SymbolType.METHOD, AstType.DEFINITION, AstType.DECLARATION);
+  }
 
-    return queryJavaAstNodesInFile(fileId, cr, root, predicate);
+  public static int countJavaMethodNodesInFile(long fileId) {
+    return countJavaAstNodesInFile(
+      fileId, SymbolType.METHOD, AstType.DEFINITION, AstType.DECLARATION);
   }
 
   public static List<JavaAstNode> queryJavaMemberTypeDefinitionNodes(
@@ -283,223 +434,345 @@ public abstract class JavaQueryFactory {
       .collect(Collectors.toList());
   }
 
-  public static List<JavaAstNode> queryDefinitionNodes(JavaAstNode javaAstNode)
+  public static int countJavaMemberTypeDefinitionNodes(
+    JavaAstNode javaAstNode, boolean ignoreSameHashes,
+    MemberTypeKind... memberTypeKind)
   {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate =
-      cb.equal(root.get("astType"), AstType.DEFINITION);
+    String queryName =
+      ignoreSameHashes ?
+        "JavaMemberType.countByTypeHashAndKindsWithOtherHash" :
+        "JavaMemberType.countByTypeHashAndKinds";
 
-    return queryJavaAstNodes(
-      javaAstNode.getDefEntityHash(), cr, root, predicate);
+    return count(
+      createNamedQuery(queryName, Long.class)
+        .setParameter("typeHash", javaAstNode.getEntityHash())
+        .setParameter("kinds", Arrays.asList(memberTypeKind))
+        .setParameter(
+          "astTypes", Arrays.asList(AstType.DECLARATION, AstType.DEFINITION)));
   }
 
-  public static List<JavaAstNode> queryDefinitionNodes(long entityHash)
+  public static List<JavaAstNode> queryDefinitionNodes(JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate =
-      cb.equal(root.get("astType"), AstType.DEFINITION);
-
-    return queryJavaAstNodes(entityHash, cr, root, predicate);
+    return queryDefinitionNodes(javaAstNode.getDefEntityHash());
   }
 
-  public static List<JavaAstNode> queryDeclOrDefNodes(JavaAstNode javaAstNode)
-  {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate =
-      cb.or(
-        cb.equal(root.get("astType"), AstType.DECLARATION),
-        cb.equal(root.get("astType"), AstType.DEFINITION)
-      );
-
-    return queryJavaAstNodes(javaAstNode, cr, root, predicate);
+  public static int countDefinitionNodes(JavaAstNode javaAstNode) {
+    return countJavaAstNodes(
+      javaAstNode.getDefEntityHash(), AstType.DEFINITION);
   }
 
-  public static List<JavaAstNode> queryDeclOrDefNodes(long entityHash)
+  public static List<JavaAstNode> queryDefinitionNodes(long entityHash)
   {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate =
-      cb.or(
-        cb.equal(root.get("astType"), AstType.DECLARATION),
-        cb.equal(root.get("astType"), AstType.DEFINITION)
-      );
-
-    return queryJavaAstNodes(entityHash, cr, root, predicate);
+    return queryJavaAstNodes(entityHash, AstType.DEFINITION);
   }
 
-  public static List<JavaMemberType> queryJavaMemberTypes(
-    JavaAstNode recordJavaAstNode)
+  public static List<JavaAstNode> queryDeclOrDefNodes(JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaMemberType> cr = cb.createQuery(JavaMemberType.class);
-    Root<JavaMemberType> root = cr.from(JavaMemberType.class);
-
-    cr
-      .select(root)
-      .where(
-        cb.equal(root.get("entityHash"), recordJavaAstNode.getEntityHash())
-      );
-
-    return em.createQuery(cr).getResultList();
+    return queryDeclOrDefNodes(javaAstNode.getEntityHash());
   }
 
-  public static List<JavaMemberType> queryJavaMemberTypes(
-    JavaAstNode recordJavaAstNode, CriteriaQuery<JavaMemberType> cr,
-    Root<JavaMemberType> root, Predicate customPredicate)
+  public static List<JavaAstNode> queryDeclOrDefNodes(long entityHash)
   {
-    Predicate entityHashPredicate =
-      cb.equal(root.get("typeHash"), recordJavaAstNode.getEntityHash());
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryJavaAstNodes(
+      entityHash, AstType.DECLARATION, AstType.DEFINITION);
   }
 
   public static List<JavaMemberType> queryJavaMemberTypes(
-    JavaAstNode javaAstNode, JavaAstNode definition,
-    MemberTypeKind memberTypeKind)
+    Collection<Long> memberAstNodeIds)
   {
-    CriteriaQuery<JavaMemberType> cr = cb.createQuery(JavaMemberType.class);
-    Root<JavaMemberType> root = cr.from(JavaMemberType.class);
-
-    Path<Long> memberAstNodeId = root.get("memberAstNode").get("id");
-    Path<MemberTypeKind> kind = root.get("kind");
-
-    Predicate idEqualNodeOrDefId =
-      cb.or(
-        cb.equal(memberAstNodeId, definition.getId()),
-        cb.equal(memberAstNodeId, javaAstNode.getId())
-      );
-    Predicate kindEqualParameter = cb.equal(kind, memberTypeKind);
-
-    cr
-      .select(root)
-      .where(cb.and(idEqualNodeOrDefId, kindEqualParameter));
-
-    return em.createQuery(cr).getResultList();
+    return queryInBatches(
+      memberAstNodeIds,
+      ids ->
+        createNamedQuery(
+            "JavaMemberType.byMemberAstNodes", JavaMemberType.class)
+          .setParameter("memberAstNodeIds", ids)
+          .getResultList());
   }
 
   public static List<JavaAstNode> queryVisibleDeclarationNodes(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate =
-      cb.and(
-        cb.equal(root.get("astType"), AstType.DECLARATION),
-        cb.isTrue(root.get("visibleInSourceCode"))
-      );
+    return createNamedQuery(
+        "JavaAstNode.visibleByEntityHashAndAstType", JavaAstNode.class)
+      .setParameter("entityHash", javaAstNode.getDefEntityHash())
+      .setParameter("astType", AstType.DECLARATION)
+      .getResultList();
+  }
 
-    return queryJavaAstNodes(
-      javaAstNode.getDefEntityHash(), cr, root, predicate);
+  public static int countVisibleDeclarationNodes(JavaAstNode javaAstNode) {
+    return count(
+      createNamedQuery(
+          "JavaAstNode.countVisibleByEntityHashAndAstType", Long.class)
+        .setParameter("entityHash", javaAstNode.getDefEntityHash())
+        .setParameter("astType", AstType.DECLARATION));
   }
 
   public static List<JavaAstNode> queryUsageNodes(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate =
-      cb.or(
-        cb.equal(root.get("astType"), AstType.USAGE),
-        cb.equal(root.get("astType"), AstType.READ),
-        cb.equal(root.get("astType"), AstType.WRITE)
-      );
+    AstType[] usageTypes = {AstType.USAGE, AstType.READ, AstType.WRITE};
+
+    if (javaAstNode.getAstType() == AstType.DEFINITION ||
+      javaAstNode.getAstType() == AstType.DECLARATION)
+    {
+      return queryJavaAstNodesFromDef(
+        javaAstNode.getDefEntityHash(), usageTypes);
+    }
+
+    return queryJavaAstNodes(javaAstNode.getEntityHash(), usageTypes);
+  }
+
+  public static int countUsageNodes(JavaAstNode javaAstNode) {
+    AstType[] usageTypes = {AstType.USAGE, AstType.READ, AstType.WRITE};
 
     if (javaAstNode.getAstType() == AstType.DEFINITION ||
       javaAstNode.getAstType() == AstType.DECLARATION)
     {
-      return queryJavaAstNodesFromDef(javaAstNode, cr, root, predicate);
+      return countJavaAstNodesFromDef(
+        javaAstNode.getDefEntityHash(), usageTypes);
     }
 
-    return queryJavaAstNodes(javaAstNode, cr, root, predicate);
+    return countJavaAstNodes(javaAstNode.getEntityHash(), usageTypes);
   }
 
   public static List<JavaAstNode> queryReadNodes(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate = cb.equal(root.get("astType"), AstType.READ);
+    return queryJavaAstNodes(javaAstNode.getEntityHash(), AstType.READ);
+  }
 
-    return queryJavaAstNodes(javaAstNode, cr, root, predicate);
+  public static int countReadNodes(JavaAstNode javaAstNode) {
+    return countJavaAstNodes(javaAstNode.getEntityHash(), AstType.READ);
   }
 
   public static List<JavaAstNode> queryWriteNodes(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-    Predicate predicate = cb.equal(root.get("astType"), AstType.WRITE);
+    return queryJavaAstNodes(javaAstNode.getEntityHash(), AstType.WRITE);
+  }
 
-    return queryJavaAstNodes(javaAstNode, cr, root, predicate);
+  public static int countWriteNodes(JavaAstNode javaAstNode) {
+    return countJavaAstNodes(javaAstNode.getEntityHash(), AstType.WRITE);
   }
 
   public static List<JavaAstNode> queryCalleeNodes(JavaAstNode javaAstNode) {
     List<JavaAstNode> calls = queryCallNodes(javaAstNode);
+    Map<Long, List<JavaAstNode>> definitions =
+      queryJavaAstNodes(
+        calls.stream()
+          .map(JavaAstNode::getDefEntityHash)
+          .collect(Collectors.toSet()),
+        AstType.DEFINITION
+      ).stream()
+        .collect(Collectors.groupingBy(JavaAstNode::getEntityHash));
 
     return calls.stream()
-      .flatMap(c -> queryDefinitionNodes(c).stream())
+      .flatMap(
+        c -> definitions.getOrDefault(
+          c.getDefEntityHash(), Collections.emptyList()).stream())
       .collect(Collectors.toList());
   }
 
+  public static int countCalleeNodes(JavaAstNode javaAstNode) {
+    JavaAstNode definition = queryCallDefinition(javaAstNode);
+
+    if (definition == null) {
+      return 0;
+    }
+
+    return count(
+      setEnclosedNodeParameters(
+        createNamedQuery(
+          "JavaAstNode.countDefinitionsOfEnclosedNodes", Long.class),
+        definition)
+        .setParameter("definitionType", AstType.DEFINITION));
+  }
+
+  /*
+    The method and constructor definitions of all files containing a usage
+    are read at once, then each usage is mapped to the smallest definition
+    enclosing it. Usages outside of any of them, e.g. in field initializers,
+    have no caller.
+  */
   public static List<JavaAstNode> queryCallerNodes(JavaAstNode javaAstNode) {
     List<JavaAstNode> usages = queryUsageNodes(javaAstNode);
 
+    return queryAstValues(
+      getCallerNodes(usages, queryCallableDefinitionsInFiles(usages)));
+  }
+
+  /*
+    Callers of several method or constructor definitions at once, used by
+    the diagrams to explore a whole level by a fixed number of queries. The
+    diagrams only label the nodes, so only their headers are read.
+  */
+  public static Map<JavaAstNode, List<JavaAstNode>> queryCallerNodes(
+    List<JavaAstNode> definitions)
+  {
+    Map<Long, List<JavaAstNode>> usages =
+      queryInBatches(
+        definitions.stream()
+          .map(JavaAstNode::getDefEntityHash)
+          .collect(Collectors.toSet()),
+        hashes ->
+          createNamedQuery(
+              "JavaAstNode.headersByDefEntityHashesAndAstTypes",
+              JavaAstNode.class)
+            .setParameter("defEntityHashes", hashes)
+            .setParameter(
+              "astTypes",
+              Arrays.asList(AstType.USAGE, AstType.READ, AstType.WRITE))
+            .getResultList()
+      ).stream()
+        .collect(Collectors.groupingBy(JavaAstNode::getDefEntityHash));
+    Map<Long, List<JavaAstNode>> callables =
+      queryCallableDefinitionsInFiles(
+        usages.values().stream()
+          .flatMap(List::stream)
+          .collect(Collectors.toList()));
+    Map<JavaAstNode, List<JavaAstNode>> callers = new LinkedHashMap<>();
+
+    definitions.forEach(d ->
+      callers.put(
+        d,
+        getCallerNodes(
+          usages.getOrDefault(d.getDefEntityHash(), Collections.emptyList()),
+          callables)));
+
+    return callers;
+  }
+
+  /*
+    Callees of several method or constructor definitions at once: the calls
+    in all of their files are read by one query and assigned to the
+    definitions enclosing them. Only the headers of the nodes are read.
+  */
+  public static Map<JavaAstNode, List<JavaAstNode>> queryCalleeNodes(
+    List<JavaAstNode> definitions)
+  {
+    Map<Long, List<JavaAstNode>> calls =
+      queryInBatches(
+        definitions.stream()
+          .map(JavaAstNode::getLocation_file)
+          .collect(Collectors.toSet()),
+        files ->
+          createNamedQuery(
+              "JavaAstNode.headersInFilesBySymbolTypesAndAstType",
+              JavaAstNode.class)
+            .setParameter("files", files)
+            .setParameter(
+              "symbolTypes",
+              Arrays.asList(SymbolType.METHOD, SymbolType.CONSTRUCTOR))
+            .setParameter("astType", AstType.USAGE)
+            .getResultList()
+      ).stream()
+        .collect(Collectors.groupingBy(JavaAstNode::getLocation_file));
+    Map<JavaAstNode, List<JavaAstNode>> enclosedCalls = new LinkedHashMap<>();
+
+    definitions.forEach(d ->
+      enclosedCalls.put(
+        d,
+        calls.getOrDefault(d.getLocation_file(), Collections.emptyList())
+          .stream()
+          .filter(c -> isEnclosedBy(c, d))
+          .collect(Collectors.toList())));
+
+    Map<Long, List<JavaAstNode>> calleeDefinitions =
+      queryJavaAstNodeHeaders(
+        enclosedCalls.values().stream()
+          .flatMap(List::stream)
+          .map(JavaAstNode::getDefEntityHash)
+          .collect(Collectors.toSet()),
+        AstType.DEFINITION
+      ).stream()
+        .collect(Collectors.groupingBy(JavaAstNode::getEntityHash));
+    Map<JavaAstNode, List<JavaAstNode>> callees = new LinkedHashMap<>();
+
+    enclosedCalls.forEach((d, dCalls) ->
+      callees.put(
+        d,
+        dCalls.stream()
+          .flatMap(
+            c -> calleeDefinitions.getOrDefault(
+              c.getDefEntityHash(), Collections.emptyList()).stream())
+          .collect(Collectors.toList())));
+
+    return callees;
+  }
+
+  /*
+    Method and constructor definitions of the files of the nodes by file.
+    Only their headers are read, their source text is loaded for the
+    callers returned to the client, see queryAstValues().
+  */
+  private static Map<Long, List<JavaAstNode>> queryCallableDefinitionsInFiles(
+    List<JavaAstNode> javaAstNodes)
+  {
+    return queryInBatches(
+      javaAstNodes.stream()
+        .map(JavaAstNode::getLocation_file)
+        .collect(Collectors.toSet()),
+      files ->
+        createNamedQuery(
+            "JavaAstNode.headersInFilesBySymbolTypesAndAstType",
+            JavaAstNode.class)
+          .setParameter("files", files)
+          .setParameter(
+            "symbolTypes",
+            Arrays.asList(SymbolType.METHOD, SymbolType.CONSTRUCTOR))
+          .setParameter("astType", AstType.DEFINITION)
+          .getResultList()
+    ).stream()
+      .collect(Collectors.groupingBy(JavaAstNode::getLocation_file));
+  }
+
+  private static List<JavaAstNode> getCallerNodes(
+    List<JavaAstNode> usages, Map<Long, List<JavaAstNode>> callables)
+  {
     return usages.stream()
-      .map(JavaQueryFactory::queryCallerNode)
+      .map(
+        u -> queryCallerNode(
+          u,
+          callables.getOrDefault(
+            u.getLocation_file(), Collections.emptyList())))
+      .filter(Objects::nonNull)
       .collect(Collectors.toList());
   }
 
-  public static JavaAstNode queryCallerNode(JavaAstNode usage) {
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    Path<AstType> astType = root.get("astType");
-    Path<SymbolType> symbolType = root.get("symbolType");
-    Path<Long> locationFile =
-      root.get("location_file");
-    Path<Long> startLine =
-      root.get("location_range_start_line");
-    Path<Long> endLine =
-      root.get("location_range_end_line");
-    Path<Long> startColumn =
-      root.get("location_range_start_column");
-    Path<Long> endColumn =
-      root.get("location_range_end_column");
-
-    long uStartLine = usage.getLocation_range_start_line();
-    long uEndLine = usage.getLocation_range_end_line();
-    long uStartColumn = usage.getLocation_range_start_line();
-    long uEndColumn = usage.getLocation_range_start_line();
-
-    Predicate definition = cb.equal(astType, AstType.DEFINITION);
-    Predicate methodOrConstructor =
-      cb.or(
-        cb.equal(symbolType, SymbolType.METHOD),
-        cb.equal(symbolType, SymbolType.CONSTRUCTOR)
-      );
-    Predicate sameFile = cb.equal(locationFile, usage.getLocation_file());
-    Predicate startPosLessEqualPos =
-      cb.or(
-        cb.and(
-          cb.equal(startLine, uStartLine),
-          cb.le(startColumn, uStartColumn)
-        ),
-        cb.lt(startLine, usage.getLocation_range_start_line())
-      );
-    Predicate posLessThanEndPos =
-      cb.or(
-        cb.and(cb.equal(endLine, uEndLine), cb.gt(endColumn, uEndColumn)),
-        cb.gt(endLine, uEndLine)
-      );
-
-    cr
-      .select(root)
-      .where(
-        cb.and(
-          definition, methodOrConstructor, sameFile,
-          startPosLessEqualPos, posLessThanEndPos
-        )
-      );
+  /*
+    Not every usage has a caller, so the usages are counted together with
+    the definitions enclosing them to match the references listed by the
+    service. The count is taken in the database, no node is read.
+  */
+  public static int countCallerNodes(JavaAstNode javaAstNode) {
+    boolean fromDef =
+      javaAstNode.getAstType() == AstType.DEFINITION ||
+      javaAstNode.getAstType() == AstType.DECLARATION;
+    long entityHash =
+      fromDef ? javaAstNode.getDefEntityHash() : javaAstNode.getEntityHash();
+
+    return count(
+      createNamedQuery(
+          fromDef ?
+            "JavaAstNode.countCallersByDefEntityHash" :
+            "JavaAstNode.countCallersByEntityHash",
+          Long.class)
+        .setParameter("entityHash", entityHash)
+        .setParameter(
+          "astTypes", Arrays.asList(AstType.USAGE, AstType.READ, AstType.WRITE))
+        .setParameter(
+          "symbolTypes",
+          Arrays.asList(SymbolType.METHOD, SymbolType.CONSTRUCTOR))
+        .setParameter("definitionType", AstType.DEFINITION));
+  }
+
+  private static JavaAstNode queryCallerNode(
+    JavaAstNode usage, List<JavaAstNode> definitions)
+  {
+    long uStartColumn = usage.getLocation_range_start_column();
+    long uEndColumn = usage.getLocation_range_end_column();
 
-    List<JavaAstNode> javaAstNodes =  em.createQuery(cr).getResultList();
+    List<JavaAstNode> javaAstNodes = definitions.stream()
+      .filter(
+        d -> encloses(
+          d,
+          usage.getLocation_range_start_line(), uStartColumn,
+          usage.getLocation_range_end_line(), uEndColumn))
+      .collect(Collectors.toList());
 
     if (javaAstNodes.isEmpty()) {
       LOGGER.log(
@@ -523,96 +796,118 @@ public abstract class JavaQueryFactory {
     return minJavaAstNode;
   }
 
+  private static boolean encloses(
+    JavaAstNode javaAstNode,
+    long startLine, long startColumn, long endLine, long endColumn)
+  {
+    long nStartLine = javaAstNode.getLocation_range_start_line();
+    long nEndLine = javaAstNode.getLocation_range_end_line();
+
+    return
+      (nStartLine == startLine &&
+        javaAstNode.getLocation_range_start_column() <= startColumn ||
+        nStartLine < startLine) &&
+      (nEndLine == endLine &&
+        javaAstNode.getLocation_range_end_column() > endColumn ||
+        nEndLine > endLine);
+  }
+
+  // The same containment as the one of the JavaAstNode.enclosedNodes query
+  private static boolean isEnclosedBy(
+    JavaAstNode javaAstNode, JavaAstNode definition)
+  {
+    long startLine = javaAstNode.getLocation_range_start_line();
+    long endLine = javaAstNode.getLocation_range_end_line();
+    long dStartLine = definition.getLocation_range_start_line();
+    long dEndLine = definition.getLocation_range_end_line();
+
+    return
+      (startLine == dStartLine &&
+        javaAstNode.getLocation_range_start_column() >=
+          definition.getLocation_range_start_column() ||
+        startLine > dStartLine) &&
+      (endLine == dEndLine &&
+        javaAstNode.getLocation_range_end_column() <=
+          definition.getLocation_range_end_column() ||
+        endLine < dEndLine);
+  }
+
   public static List<JavaAstNode> queryCallNodes(JavaAstNode javaAstNode) {
-    JavaAstNode definition;
+    JavaAstNode definition = queryCallDefinition(javaAstNode);
 
-    if (javaAstNode.getAstType() == AstType.DEFINITION) {
-      definition = javaAstNode;
-    } else {
-      List<JavaAstNode> definitions = queryDefinitionNodes(javaAstNode);
+    if (definition == null) {
+      return new ArrayList<>();
+    }
 
-      if (definitions.isEmpty()) {
-        return definitions;
-      }
+    return setEnclosedNodeParameters(
+      createNamedQuery("JavaAstNode.enclosedNodes", JavaAstNode.class),
+      definition)
+      .getResultList();
+  }
+
+  public static int countCallNodes(JavaAstNode javaAstNode) {
+    JavaAstNode definition = queryCallDefinition(javaAstNode);
 
-      definition = definitions.get(0);
+    if (definition == null) {
+      return 0;
     }
 
-    CriteriaQuery<JavaAstNode> cr = cb.createQuery(JavaAstNode.class);
-    Root<JavaAstNode> root = cr.from(JavaAstNode.class);
-
-    Path<AstType> astType = root.get("astType");
-    Path<SymbolType> symbolType = root.get("symbolType");
-    Path<Long> locationFile =
-      root.get("location_file");
-    Path<Long> startLine =
-      root.get("location_range_start_line");
-    Path<Long> endLine =
-      root.get("location_range_end_line");
-    Path<Long> startColumn =
-      root.get("location_range_start_column");
-    Path<Long> endColumn =
-      root.get("location_range_end_column");
-
-    long dFile = definition.getLocation_file();
-    long dStartLine = definition.getLocation_range_start_line();
-    long dEndLine = definition.getLocation_range_end_line();
-    long dStartColumn = definition.getLocation_range_start_column();
-    long dEndColumn = definition.getLocation_range_end_column();
-
-    Predicate usage = cb.equal(astType, AstType.USAGE);
-    Predicate methodOrConstructor =
-      cb.or(
-        cb.equal(symbolType, SymbolType.METHOD),
-        cb.equal(symbolType, SymbolType.CONSTRUCTOR)
-      );
-    Predicate sameFile = cb.equal(locationFile, dFile);
-    Predicate startPosGreaterEqualPos =
-      cb.or(
-        cb.and(
-          cb.equal(startLine, dStartLine),
-          cb.ge(startColumn, dStartColumn)
-        ),
-        cb.gt(startLine, dStartLine)
-      );
-    Predicate posGreaterEqualEndPos =
-      cb.or(
-        cb.and(
-          cb.equal(endLine, dEndLine),
-          cb.le(endColumn, dEndColumn)
-        ),
-        cb.lt(endLine, dEndLine)
-      );
+    return count(
+      setEnclosedNodeParameters(
+        createNamedQuery("JavaAstNode.countEnclosedNodes", Long.class),
+        definition));
+  }
 
-    cr
-      .select(root)
-      .where(
-        cb.and(
-          usage, methodOrConstructor, sameFile,
-          startPosGreaterEqualPos, posGreaterEqualEndPos
-        )
-      );
+  private static JavaAstNode queryCallDefinition(JavaAstNode javaAstNode) {
+    if (javaAstNode.getAstType() == AstType.DEFINITION) {
+      return javaAstNode;
+    }
 
-    return em.createQuery(cr).getResultList();
+    List<JavaAstNode> definitions = queryDefinitionNodes(javaAstNode);
+
+    return definitions.isEmpty() ? null : definitions.get(0);
+  }
+
+  // Method and constructor usages inside the range of the definition
+  private static <T> TypedQuery<T> setEnclosedNodeParameters(
+    TypedQuery<T> query, JavaAstNode definition)
+  {
+    return query
+      .setParameter("astType", AstType.USAGE)
+      .setParameter(
+        "symbolTypes",
+        Arrays.asList(SymbolType.METHOD, SymbolType.CONSTRUCTOR))
+      .setParameter("file", definition.getLocation_file())
+      .setParameter("startLine", definition.getLocation_range_start_line())
+      .setParameter("startColumn", definition.getLocation_range_start_column())
+      .setParameter("endLine", definition.getLocation_range_end_line())
+      .setParameter("endColumn", definition.getLocation_range_end_column());
   }
 
   public static List<JavaAstNode> queryParameterNodes(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaEntity> cr = cb.createQuery(JavaEntity.class);
-    Root<JavaEntity> root = cr.from(JavaEntity.class);
+    return queryJavaAstNodes(queryParameters(javaAstNode));
+  }
 
-    cr
-      .select(root)
-      .where(cb.equal(root.get("astNodeId"), javaAstNode.getId()));
+  public static int countParameterNodes(JavaAstNode javaAstNode) {
+    return queryParameters(javaAstNode).size();
+  }
+
+  public static List<JavaAstNode> queryLocalVarNodes(JavaAstNode javaAstNode) {
+    return queryJavaAstNodes(queryLocalVars(javaAstNode));
+  }
+
+  public static int countLocalVarNodes(JavaAstNode javaAstNode) {
+    return queryLocalVars(javaAstNode).size();
+  }
 
+  private static Set<JavaVariable> queryParameters(JavaAstNode javaAstNode) {
     try {
-      JavaEntity javaEntity = em.createQuery(cr).getSingleResult();
+      JavaEntity javaEntity = queryJavaEntity(javaAstNode);
 
       if (javaEntity instanceof JavaConstructor) {
-        return queryJavaAstNodes(
-          ((JavaConstructor) javaEntity).getJavaConVarParams());
+        return ((JavaConstructor) javaEntity).getJavaConVarParams();
       } else if (javaEntity instanceof JavaMethod) {
-        return queryJavaAstNodes(
-          ((JavaMethod) javaEntity).getJavaMetVarParams());
+        return ((JavaMethod) javaEntity).getJavaMetVarParams();
       }
     } catch (NoResultException ex) {
       LOGGER.log(
@@ -622,29 +917,19 @@ public abstract class JavaQueryFactory {
       );
     }
 
-    return new ArrayList<>();
+    return new HashSet<>();
   }
 
-  public static List<JavaAstNode> queryLocalVarNodes(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaEntity> cr = cb.createQuery(JavaEntity.class);
-    Root<JavaEntity> root = cr.from(JavaEntity.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("astNodeId"), javaAstNode.getId()));
-
+  private static Set<JavaVariable> queryLocalVars(JavaAstNode javaAstNode) {
     try {
-      JavaEntity javaEntity = em.createQuery(cr).getSingleResult();
+      JavaEntity javaEntity = queryJavaEntity(javaAstNode);
 
       if (javaEntity instanceof JavaConstructor) {
-        return queryJavaAstNodes(
-          ((JavaConstructor) javaEntity).getJavaConVarLocals());
+        return ((JavaConstructor) javaEntity).getJavaConVarLocals();
       } else if (javaEntity instanceof JavaMethod) {
-        return queryJavaAstNodes(
-          ((JavaMethod) javaEntity).getJavaMetVarLocals());
+        return ((JavaMethod) javaEntity).getJavaMetVarLocals();
       } else if (javaEntity instanceof JavaInitializer) {
-        return queryJavaAstNodes(
-          ((JavaInitializer) javaEntity).getJavaInitVarLocals());
+        return ((JavaInitializer) javaEntity).getJavaInitVarLocals();
       }
     } catch (NoResultException ex) {
       LOGGER.log(
@@ -654,7 +939,7 @@ public abstract class JavaQueryFactory {
       );
     }
 
-    return new ArrayList<>();
+    return new HashSet<>();
   }
 
   public static List<JavaAstNode> queryReturnTypeNodes(JavaAstNode javaAstNode)
@@ -675,23 +960,24 @@ public abstract class JavaQueryFactory {
     return new ArrayList<>();
   }
 
+  /*
+    Overrides at any depth are read from the closure materialized by the
+    parser, see JavaHierarchyClosure.
+  */
   public static List<JavaAstNode> queryRelationNodes(
     JavaAstNode javaAstNode, RelationKind relationKind, boolean reverse)
   {
-    CriteriaQuery<JavaRelation> cr = cb.createQuery(JavaRelation.class);
-    Root<JavaRelation> root = cr.from(JavaRelation.class);
-    Predicate relationKindPredicate = cb.equal(
-      root.get("kind"), relationKind
-    );
-
-    List<JavaRelation> javaRelations =
-      queryJavaRelations(javaAstNode, reverse, cr, root, relationKindPredicate);
+    return queryHierarchyNodes(
+      javaAstNode, ClosureKind.valueOf(relationKind.name()), reverse,
+      AstType.DECLARATION, AstType.DEFINITION);
+  }
 
-    return javaRelations.stream()
-      .flatMap(
-        r ->  queryDeclOrDefNodes(reverse ? r.getRhs() : r.getLhs()).stream())
-      .collect(Collectors.toList()
-      );
+  public static int countRelationNodes(
+    JavaAstNode javaAstNode, RelationKind relationKind, boolean reverse)
+  {
+    return countHierarchyNodes(
+      javaAstNode, ClosureKind.valueOf(relationKind.name()), reverse,
+      AstType.DECLARATION, AstType.DEFINITION);
   }
 
   public static List<JavaAstNode> queryTypeNodes(JavaAstNode javaAstNode) {
@@ -714,44 +1000,79 @@ public abstract class JavaQueryFactory {
   public static List<JavaAstNode> queryInheritFromNodes(
     JavaAstNode javaAstNode)
   {
-    List<JavaInheritance> javaInheritances =
-      queryInheritancesDerived(javaAstNode);
+    return queryHierarchyNodes(
+      javaAstNode, ClosureKind.INHERITANCE, false, AstType.DEFINITION);
+  }
 
-    return javaInheritances.stream()
-      .flatMap(i -> queryDefinitionNodes(i.getBase()).stream())
-      .collect(Collectors.toList());
+  public static int countInheritFromNodes(JavaAstNode javaAstNode) {
+    return countHierarchyNodes(
+      javaAstNode, ClosureKind.INHERITANCE, false, AstType.DEFINITION);
   }
 
   public static List<JavaAstNode> queryInheritedByNodes(
     JavaAstNode javaAstNode)
   {
-    List<JavaInheritance> javaInheritances =
-      queryInheritancesBase(javaAstNode);
+    return queryHierarchyNodes(
+      javaAstNode, ClosureKind.INHERITANCE, true, AstType.DEFINITION);
+  }
 
-    return javaInheritances.stream()
-      .flatMap(i -> queryDefinitionNodes(i.getDerived()).stream())
-      .collect(Collectors.toList());
+  public static int countInheritedByNodes(JavaAstNode javaAstNode) {
+    return countHierarchyNodes(
+      javaAstNode, ClosureKind.INHERITANCE, true, AstType.DEFINITION);
+  }
+
+  // Reverse lookups go from the base to the derived ones, nearest first
+  private static List<JavaAstNode> queryHierarchyNodes(
+    JavaAstNode javaAstNode, ClosureKind closureKind, boolean reverse,
+    AstType... astTypes)
+  {
+    return createNamedQuery(
+        reverse ?
+          "JavaHierarchyClosure.derivedNodes" :
+          "JavaHierarchyClosure.baseNodes",
+        JavaAstNode.class)
+      .setParameter("entityHash", javaAstNode.getEntityHash())
+      .setParameter("kind", closureKind)
+      .setParameter("astTypes", Arrays.asList(astTypes))
+      .getResultList();
+  }
+
+  private static int countHierarchyNodes(
+    JavaAstNode javaAstNode, ClosureKind closureKind, boolean reverse,
+    AstType... astTypes)
+  {
+    return count(
+      createNamedQuery(
+          reverse ?
+            "JavaHierarchyClosure.countDerivedNodes" :
+            "JavaHierarchyClosure.countBaseNodes",
+          Long.class)
+        .setParameter("entityHash", javaAstNode.getEntityHash())
+        .setParameter("kind", closureKind)
+        .setParameter("astTypes", Arrays.asList(astTypes)));
   }
 
   public static List<JavaAstNode> queryJavaInitializerNodes(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaInitializer> cr = cb.createQuery(JavaInitializer.class);
-    Root<JavaInitializer> root = cr.from(JavaInitializer.class);
-
-    cr
-      .select(root)
-      .where(
-        cb.equal(root.get("typeHash"), javaAstNode.getEntityHash())
-      );
-
-    List<JavaInitializer> javaInitializers = em.createQuery(cr).getResultList();
+    List<JavaInitializer> javaInitializers =
+      createNamedQuery("JavaInitializer.byTypeHash", JavaInitializer.class)
+        .setParameter("typeHash", javaAstNode.getEntityHash())
+        .getResultList();
 
     return javaInitializers.stream()
       .flatMap(i -> queryDefinitionNodes(i.getEntityHash()).stream())
       .collect(Collectors.toList());
   }
 
+  public static int countJavaInitializerNodes(JavaAstNode javaAstNode) {
+    return count(
+      createNamedQuery(
+          "JavaInitializer.countDefinitionsByTypeHash", Long.class)
+        .setParameter("typeHash", javaAstNode.getEntityHash())
+        .setParameter("astType", AstType.DEFINITION));
+  }
+
   public static List<JavaAstNode> queryJavaEnumConstantNodes(
     JavaAstNode javaAstNode)
   {
@@ -770,398 +1091,175 @@ public abstract class JavaQueryFactory {
     return new ArrayList<>();
   }
 
-  public static List<JavaInheritance> queryInheritancesDerived(
-    JavaAstNode javaAstNode)
-  {
-    CriteriaQuery<JavaInheritance> cr = cb.createQuery(JavaInheritance.class);
-    Root<JavaInheritance> root = cr.from(JavaInheritance.class);
+  public static int countJavaEnumConstantNodes(JavaAstNode javaAstNode) {
+    List<JavaEnum> javaEnums = queryJavaEnums(javaAstNode);
 
-    cr
-      .select(root)
-      .where(cb.equal(root.get("derived"), javaAstNode.getEntityHash()));
+    if (!javaEnums.isEmpty()) {
+      return javaEnums.get(0).getJavaEnumConstants().size();
+    }
 
-    return em.createQuery(cr).getResultList();
+    return 0;
   }
 
   public static List<JavaInheritance> queryInheritancesDerived(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaInheritance> cr,
-    Root<JavaInheritance> root, Predicate customPredicate)
+    JavaAstNode javaAstNode)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("derived"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery("JavaInheritance.byDerived", JavaInheritance.class)
+      .setParameter("entityHash", javaAstNode.getEntityHash())
+      .getResultList();
   }
 
   public static List<JavaInheritance> queryInheritancesBase(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaInheritance> cr = cb.createQuery(JavaInheritance.class);
-    Root<JavaInheritance> root = cr.from(JavaInheritance.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("base"), javaAstNode.getEntityHash()));
-
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery("JavaInheritance.byBase", JavaInheritance.class)
+      .setParameter("entityHash", javaAstNode.getEntityHash())
+      .getResultList();
   }
 
-  public static List<JavaInheritance> queryInheritancesBase(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaInheritance> cr,
-    Root<JavaInheritance> root, Predicate customPredicate)
+  public static Map<Long, String> queryJavaEntityNames(
+    Collection<Long> entityHashes)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("base"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return toMap(
+      queryInBatches(
+        entityHashes,
+        hashes ->
+          createNamedQuery("JavaEntity.namesByEntityHashes", Object[].class)
+            .setParameter("entityHashes", hashes)
+            .getResultList()));
   }
 
-  public static List<JavaRecord> queryJavaRecords(
-    JavaTypedEntity javaTypedEntity)
+  public static Map<Long, Long> queryJavaVariableTypes(
+    Collection<Long> entityHashes)
   {
-    CriteriaQuery<JavaRecord> cr = cb.createQuery(JavaRecord.class);
-    Root<JavaRecord> root = cr.from(JavaRecord.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaTypedEntity.getTypeHash()));
-
-    return em.createQuery(cr).getResultList();
+    return toMap(
+      queryInBatches(
+        entityHashes,
+        hashes ->
+          createNamedQuery("JavaVariable.typesByEntityHashes", Object[].class)
+            .setParameter("entityHashes", hashes)
+            .getResultList()));
   }
 
-  public static List<JavaRecord> queryJavaRecords(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaRecord> cr = cb.createQuery(JavaRecord.class);
-    Root<JavaRecord> root = cr.from(JavaRecord.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
+  // Maps the first column of the rows to the second one, first row wins
+  @SuppressWarnings("unchecked")
+  private static <K, V> Map<K, V> toMap(List<Object[]> rows) {
+    Map<K, V> map = new HashMap<>();
 
-    List<JavaRecord> javaRecords = em.createQuery(cr).getResultList();
+    rows.forEach(r -> map.putIfAbsent((K) r[0], (V) r[1]));
 
-    if (javaRecords.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-          "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
+    return map;
+  }
 
-    return javaRecords;
+  public static JavaEntity queryJavaEntity(JavaAstNode javaAstNode) {
+    return createNamedQuery("JavaEntity.byAstNodeId", JavaEntity.class)
+      .setParameter("astNodeId", javaAstNode.getId())
+      .getSingleResult();
   }
 
   public static List<JavaRecord> queryJavaRecords(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaRecord> cr,
-    Root<JavaRecord> root, Predicate customPredicate)
+    JavaTypedEntity javaTypedEntity)
   {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryJavaEntities(JavaRecord.class, javaTypedEntity.getTypeHash());
   }
 
-  public static List<JavaEnum> queryJavaEnums(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaEnum> cr = cb.createQuery(JavaEnum.class);
-    Root<JavaEnum> root = cr.from(JavaEnum.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    List<JavaEnum> javaEnums = em.createQuery(cr).getResultList();
-
-    if (javaEnums.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-        "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
-
-    return javaEnums;
+  public static List<JavaRecord> queryJavaRecords(JavaAstNode javaAstNode) {
+    return queryExpectedJavaEntities(JavaRecord.class, javaAstNode);
   }
 
-  public static List<JavaEnum> queryJavaEnums(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaEnum> cr,
-    Root<JavaEnum> root, Predicate customPredicate)
-  {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+  public static List<JavaEnum> queryJavaEnums(JavaAstNode javaAstNode) {
+    return queryExpectedJavaEntities(JavaEnum.class, javaAstNode);
   }
 
   public static List<JavaRelation> queryJavaRelations(
     JavaAstNode javaAstNode, boolean reverse)
   {
-    CriteriaQuery<JavaRelation> cr = cb.createQuery(JavaRelation.class);
-    Root<JavaRelation> root = cr.from(JavaRelation.class);
-
-    Path<Long> entityHash = reverse ? root.get("lhs") : root.get("rhs");
-
-    cr
-      .select(root)
-      .where(cb.equal(entityHash, javaAstNode.getEntityHash()));
-
-    return em.createQuery(cr).getResultList();
-  }
-
-  public static List<JavaRelation> queryJavaRelations(
-    JavaAstNode javaAstNode, boolean reverse,
-    CriteriaQuery<JavaRelation> cr,
-    Root<JavaRelation> root, Predicate customPredicate)
-  {
-    Path<Long> entityHash = reverse ? root.get("lhs") : root.get("rhs");
-
-    Predicate entityHashPredicate = cb.equal(
-      entityHash, javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return createNamedQuery(
+        reverse ? "JavaRelation.byLhs" : "JavaRelation.byRhs",
+        JavaRelation.class)
+      .setParameter("entityHash", javaAstNode.getEntityHash())
+      .getResultList();
   }
 
   public static List<JavaMethod> queryJavaMethods(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaMethod> cr = cb.createQuery(JavaMethod.class);
-    Root<JavaMethod> root = cr.from(JavaMethod.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    List<JavaMethod> javaMethods = em.createQuery(cr).getResultList();
-
-    if (javaMethods.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-          "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
-
-    return javaMethods;
-  }
-
-  public static List<JavaMethod> queryJavaMethods(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaMethod> cr,
-    Root<JavaMethod> root, Predicate customPredicate)
-  {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryExpectedJavaEntities(JavaMethod.class, javaAstNode);
   }
 
   public static List<JavaVariable> queryJavaVariables(JavaAstNode javaAstNode) {
-    CriteriaQuery<JavaVariable> cr = cb.createQuery(JavaVariable.class);
-    Root<JavaVariable> root = cr.from(JavaVariable.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    List<JavaVariable> javaVariables = em.createQuery(cr).getResultList();
-
-    if (javaVariables.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-          "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
-
-    return javaVariables;
-  }
-
-  public static List<JavaVariable> queryJavaVariables(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaVariable> cr,
-    Root<JavaVariable> root, Predicate customPredicate)
-  {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryExpectedJavaEntities(JavaVariable.class, javaAstNode);
   }
 
   public static List<JavaConstructor> queryJavaConstructors(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaConstructor> cr =
-      cb.createQuery(JavaConstructor.class);
-    Root<JavaConstructor> root = cr.from(JavaConstructor.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    List<JavaConstructor> javaConstructors = em.createQuery(cr).getResultList();
-
-    if (javaConstructors.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-          "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
-
-    return javaConstructors;
-  }
-
-  public static List<JavaConstructor> queryJavaConstructors(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaConstructor> cr,
-    Root<JavaConstructor> root, Predicate customPredicate)
-  {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryExpectedJavaEntities(JavaConstructor.class, javaAstNode);
   }
 
   public static List<JavaEnumConstant> queryJavaEnumConstants(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaEnumConstant> cr =
-      cb.createQuery(JavaEnumConstant.class);
-    Root<JavaEnumConstant> root = cr.from(JavaEnumConstant.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    List<JavaEnumConstant> javaEnumConstants =
-      em.createQuery(cr).getResultList();
-
-    if (javaEnumConstants.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-          "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
-
-    return javaEnumConstants;
-  }
-
-  public static List<JavaEnumConstant> queryJavaEnumConstants(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaEnumConstant> cr,
-    Root<JavaEnumConstant> root, Predicate customPredicate)
-  {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryExpectedJavaEntities(JavaEnumConstant.class, javaAstNode);
   }
 
   public static List<JavaInitializer> queryJavaInitializers(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaInitializer> cr =
-      cb.createQuery(JavaInitializer.class);
-    Root<JavaInitializer> root = cr.from(JavaInitializer.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    List<JavaInitializer> javaInitializers =
-      em.createQuery(cr).getResultList();
-
-    if (javaInitializers.isEmpty()) {
-      LOGGER.log(
-        Level.WARNING,
-        "Database query result was not expected to be empty. " +
-          getCurrentPath() + ", line #" + getCurrentLineNumber()
-      );
-    }
-
-    return javaInitializers;
-  }
-
-  public static List<JavaInitializer> queryJavaInitializers(
-    JavaAstNode javaAstNode, CriteriaQuery<JavaInitializer> cr,
-    Root<JavaInitializer> root, Predicate customPredicate)
-  {
-    Predicate entityHashPredicate = cb.equal(
-      root.get("entityHash"), javaAstNode.getEntityHash()
-    );
-
-    cr.select(root).where(cb.and(entityHashPredicate, customPredicate));
-
-    return em.createQuery(cr).getResultList();
+    return queryExpectedJavaEntities(JavaInitializer.class, javaAstNode);
   }
 
   public static List<JavaMemberType> queryJavaMemberTypes(
     JavaAstNode recordJavaAstNode, boolean ignoreSameHash,
     MemberTypeKind... memberTypeKinds)
   {
-    CriteriaQuery<JavaMemberType> cr = cb.createQuery(JavaMemberType.class);
-    Root<JavaMemberType> root = cr.from(JavaMemberType.class);
-    Predicate predicate;
-
-    if (ignoreSameHash) {
-      predicate =
-        cb.and(
-          root.get("kind").in((Object[]) memberTypeKinds),
-          cb.notEqual(root.get("memberTypeHash"), root.get("typeHash"))
-        );
-    } else {
-      predicate = root.get("kind").in((Object[]) memberTypeKinds);
-    }
+    String queryName =
+      ignoreSameHash ?
+        "JavaMemberType.byTypeHashAndKindsWithOtherHash" :
+        "JavaMemberType.byTypeHashAndKinds";
 
-    return queryJavaMemberTypes(recordJavaAstNode, cr, root, predicate);
+    return createNamedQuery(queryName, JavaMemberType.class)
+      .setParameter("typeHash", recordJavaAstNode.getEntityHash())
+      .setParameter("kinds", Arrays.asList(memberTypeKinds))
+      .getResultList();
   }
 
   public static List<JavaDocComment> queryJavaDocComments(
     JavaAstNode javaAstNode)
   {
-    CriteriaQuery<JavaDocComment> cr =
-      cb.createQuery(JavaDocComment.class);
-    Root<JavaDocComment> root = cr.from(JavaDocComment.class);
-
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), javaAstNode.getEntityHash()));
-
-    return em.createQuery(cr).getResultList();
+    return queryJavaDocComments(javaAstNode.getEntityHash());
   }
 
   public static List<JavaDocComment> queryJavaDocComments(
     long entityHash)
   {
-    CriteriaQuery<JavaDocComment> cr =
-      cb.createQuery(JavaDocComment.class);
-    Root<JavaDocComment> root = cr.from(JavaDocComment.class);
+    return createNamedQuery("JavaDocComment.byEntityHash", JavaDocComment.class)
+      .setParameter("entityHash", entityHash)
+      .getResultList();
+  }
+
+  private static <E extends JavaEntity> List<E> queryJavaEntities(
+    Class<E> entityClass, long entityHash)
+  {
+    return createNamedQuery(
+        entityClass.getSimpleName() + ".byEntityHash", entityClass)
+      .setParameter("entityHash", entityHash)
+      .getResultList();
+  }
+
+  private static <E extends JavaEntity> List<E> queryExpectedJavaEntities(
+    Class<E> entityClass, JavaAstNode javaAstNode)
+  {
+    List<E> javaEntities =
+      queryJavaEntities(entityClass, javaAstNode.getEntityHash());
 
-    cr
-      .select(root)
-      .where(cb.equal(root.get("entityHash"), entityHash));
+    if (javaEntities.isEmpty()) {
+      LOGGER.log(
+        Level.WARNING,
+        "Database query result was not expected to be empty. " +
+          getCurrentPath() + ", line #" + getCurrentLineNumber()
+      );
+    }
 
-    return em.createQuery(cr).getResultList();
+    return javaEntities;
   }
 
   private static String getCurrentPath() {
@@ -5,8 +5,10 @@ import cc.service.java.JavaService;
 import cc.service.language.AstNodeInfo;
 import cc.service.language.SyntaxHighlight;
 import model.*;
+import model.enums.AstType;
 import model.enums.MemberTypeKind;
 import model.enums.RelationKind;
+import model.enums.SymbolType;
 import org.apache.thrift.TException;
 import service.srcjava.enums.DiagramType;
 import service.srcjava.enums.FileReferenceType;
@@ -18,9 +20,21 @@ import java.util.stream.Collectors;
 import static service.srcjava.JavaQueryFactory.*;
 
 public class JavaQueryHandler implements JavaService.Iface {
+  /*
+    Results of the reference queries are cached up to an estimated size of
+    MAX_CACHE_SIZE bytes, see ResultCache. The estimate of a result is
+    ENTRY_SIZE for each object plus two bytes for each character.
+  */
+  private static final long MAX_CACHE_SIZE = 64L * 1024 * 1024;
+  private static final long ENTRY_SIZE = 64;
+
+  private final ResultCache resultCache =
+    new ResultCache(MAX_CACHE_SIZE, JavaQueryFactory::getParseGeneration);
+
   @Override
   public FileRange getFileRange(String javaAstNodeId) {
-    JavaAstNode javaAstNode = queryJavaAstNode(Long.parseLong(javaAstNodeId));
+    JavaAstNode javaAstNode =
+      queryJavaAstNodeHeader(Long.parseLong(javaAstNodeId));
 
     return getFileRange(javaAstNode);
   }
@@ -55,16 +69,35 @@ public class JavaQueryHandler implements JavaService.Iface {
       }
     }
 
-    return createAstNodeInfo(
+    AstNodeInfo astNodeInfo = createAstNodeInfo(
       minJavaAstNode, getTags(Collections.singletonList(minJavaAstNode))
     );
+
+    // The nodes of the position lookup are shared, so they are not modified
+    astNodeInfo.astNodeValue = queryAstValue(minJavaAstNode.getId());
+
+    return astNodeInfo;
   }
 
   @Override
   public Map<String, String> getProperties(String javaAstNodeId) {
+    return resultCache.get(
+      Arrays.asList("getProperties", javaAstNodeId),
+      () -> {
+        Map<String, String> properties = computeProperties(javaAstNodeId);
+
+        return new ResultCache.Computed<>(
+          properties,
+          ENTRY_SIZE + properties.entrySet().stream()
+            .mapToLong(e -> getSize(e.getKey()) + getSize(e.getValue()))
+            .sum());
+      });
+  }
+
+  private Map<String, String> computeProperties(String javaAstNodeId) {
     Map<String, String> properties = new HashMap<>();
     long javaAstNodeIdLong = Long.parseLong(javaAstNodeId);
-    JavaAstNode javaAstNode = queryJavaAstNode(javaAstNodeIdLong);
+    JavaAstNode javaAstNode = queryJavaAstNodeHeader(javaAstNodeIdLong);
 
     switch (javaAstNode.getSymbolType()){
       case VARIABLE: {
@@ -182,10 +215,22 @@ public class JavaQueryHandler implements JavaService.Iface {
 
   @Override
   public String getDocumentation(String javaAstNodeId) {
+    return resultCache.get(
+      Arrays.asList("getDocumentation", javaAstNodeId),
+      () -> {
+        String documentation = computeDocumentation(javaAstNodeId);
+
+        return new ResultCache.Computed<>(
+          documentation,
+          ENTRY_SIZE + getSize(documentation));
+      });
+  }
+
+  private String computeDocumentation(String javaAstNodeId) {
     StringBuilder sb = new StringBuilder();
 
     long javaAstNodeIdLong = Long.parseLong(javaAstNodeId);
-    JavaAstNode javaAstNode = queryJavaAstNode(javaAstNodeIdLong);
+    JavaAstNode javaAstNode = queryJavaAstNodeHeader(javaAstNodeIdLong);
 
     List<JavaDocComment> javaDocComments = queryJavaDocComments(javaAstNode);
 
@@ -275,7 +320,7 @@ public class JavaQueryHandler implements JavaService.Iface {
   public Map<String, Integer> getReferenceTypes(String javaAstNodeId) {
     long javaAstNodeIdLong = Long.parseLong(javaAstNodeId);
     HashMap<String, Integer> referenceTypes = new HashMap<>();
-    JavaAstNode javaAstNode = queryJavaAstNode(javaAstNodeIdLong);
+    JavaAstNode javaAstNode = queryJavaAstNodeHeader(javaAstNodeIdLong);
 
     referenceTypes.put("Definition", ReferenceType.DEFINITION.ordinal());
     referenceTypes.put("Declaration", ReferenceType.DECLARATION.ordinal());
@@ -366,68 +411,70 @@ public class JavaQueryHandler implements JavaService.Iface {
 
   @Override
   public int getReferenceCount(String javaAstNodeId, int referenceId) {
+    return resultCache.get(
+      Arrays.asList("getReferenceCount", javaAstNodeId, referenceId),
+      () -> new ResultCache.Computed<>(
+        computeReferenceCount(javaAstNodeId, referenceId),
+        ENTRY_SIZE));
+  }
+
+  private int computeReferenceCount(String javaAstNodeId, int referenceId) {
     long javaAstNodeIdLong = Long.parseLong(javaAstNodeId);
-    JavaAstNode javaAstNode = queryJavaAstNode(javaAstNodeIdLong);
+    JavaAstNode javaAstNode = queryJavaAstNodeHeader(javaAstNodeIdLong);
 
     switch (ReferenceType.values()[referenceId]) {
       case DEFINITION:
-        return queryDefinitionNodes(javaAstNode).size();
+        return countDefinitionNodes(javaAstNode);
       case DECLARATION:
-        return queryVisibleDeclarationNodes(javaAstNode).size();
+        return countVisibleDeclarationNodes(javaAstNode);
       case USAGE:
-        return queryUsageNodes(javaAstNode).size();
+        return countUsageNodes(javaAstNode);
       case THIS_CALLS:
-        return queryCallNodes(javaAstNode).size();
+        return countCallNodes(javaAstNode);
       case CALLEE:
-        return queryCalleeNodes(javaAstNode).size();
+        return countCalleeNodes(javaAstNode);
       case CALLER:
-        return queryCallerNodes(javaAstNode).size();
+        return countCallerNodes(javaAstNode);
       case PARAMETER:
-        return queryParameterNodes(javaAstNode).size();
+        return countParameterNodes(javaAstNode);
       case LOCAL_VAR:
-        return queryLocalVarNodes(javaAstNode).size();
+        return countLocalVarNodes(javaAstNode);
       case RETURN_TYPE:
         return queryReturnTypeNodes(javaAstNode).size();
       case OVERRIDE:
-        return queryRelationNodes(
-          javaAstNode, RelationKind.OVERRIDE, false).size();
+        return countRelationNodes(javaAstNode, RelationKind.OVERRIDE, false);
       case OVERRIDDEN_BY:
-        return queryRelationNodes(
-          javaAstNode, RelationKind.OVERRIDE, true).size();
+        return countRelationNodes(javaAstNode, RelationKind.OVERRIDE, true);
       case IMPLEMENT:
-        return queryRelationNodes(
-          javaAstNode, RelationKind.IMPLEMENT, false).size();
+        return countRelationNodes(javaAstNode, RelationKind.IMPLEMENT, false);
       case IMPLEMENTED_BY:
-        return queryRelationNodes(
-          javaAstNode, RelationKind.IMPLEMENT, true).size();
+        return countRelationNodes(javaAstNode, RelationKind.IMPLEMENT, true);
       case READ:
-        return queryReadNodes(javaAstNode).size();
+        return countReadNodes(javaAstNode);
       case WRITE:
-        return queryWriteNodes(javaAstNode).size();
+        return countWriteNodes(javaAstNode);
       case TYPE:
         return queryTypeNodes(javaAstNode).size();
       case INHERIT_FROM:
-        return queryInheritFromNodes(javaAstNode).size();
+        return countInheritFromNodes(javaAstNode);
       case INHERIT_BY:
-        return queryInheritedByNodes(javaAstNode).size();
+        return countInheritedByNodes(javaAstNode);
       case INNER_TYPE:
-        return queryJavaMemberTypeDefinitionNodes(
-          javaAstNode, true,
-          MemberTypeKind.TYPE, MemberTypeKind.ENUM
-        ).size();
+        return countJavaMemberTypeDefinitionNodes(
+          javaAstNode, true, MemberTypeKind.TYPE, MemberTypeKind.ENUM);
       case INITIALIZER:
-        return queryJavaInitializerNodes(javaAstNode).size();
+        return countJavaInitializerNodes(javaAstNode);
       case CONSTRUCTOR:
-        return queryJavaMemberTypeDefinitionNodes(
-          javaAstNode, false, MemberTypeKind.CONSTRUCTOR).size();
+        return countJavaMemberTypeDefinitionNodes(
+          javaAstNode, false, MemberTypeKind.CONSTRUCTOR);
       case DATA_MEMBER:
-        return queryJavaMemberTypeDefinitionNodes(
-          javaAstNode, false, MemberTypeKind.FIELD).size();
+        return countJavaMemberTypeDefinitionNodes(
+          javaAstNode, false, MemberTypeKind.FIELD);
       case METHOD:
-        return queryJavaMemberTypeDefinitionNodes(
-          javaAstNode, false, MemberTypeKind.METHOD).size();
+        return countJavaMemberTypeDefinitionNodes(
+          javaAstNode, false, MemberTypeKind.METHOD);
       case ENUM_CONSTANTS:
-        return queryJavaEnumConstantNodes(javaAstNode).size();
+        return countJavaEnumConstantNodes(javaAstNode);
     }
 
     return 0;
@@ -436,9 +483,22 @@ public class JavaQueryHandler implements JavaService.Iface {
   @Override
   public List<AstNodeInfo> getReferences(
     String javaAstNodeId, int referenceId, List<String> tags)
+  {
+    return resultCache.get(
+      Arrays.asList("getReferences", javaAstNodeId, referenceId, tags),
+      () -> {
+        List<AstNodeInfo> references =
+          computeReferences(javaAstNodeId, referenceId, tags);
+
+        return new ResultCache.Computed<>(references, getSize(references));
+      });
+  }
+
+  private List<AstNodeInfo> computeReferences(
+    String javaAstNodeId, int referenceId, List<String> tags)
   {
     long javaAstNodeIdLong = Long.parseLong(javaAstNodeId);
-    JavaAstNode javaAstNode = queryJavaAstNode(javaAstNodeIdLong);
+    JavaAstNode javaAstNode = queryJavaAstNodeHeader(javaAstNodeIdLong);
     List<JavaAstNode> javaAstNodes = new ArrayList<>();
     List<AstNodeInfo> javaAstNodeInfos;
 
@@ -551,17 +611,32 @@ public class JavaQueryHandler implements JavaService.Iface {
 
   @Override
   public int getFileReferenceCount(String fileId, int referenceId) {
+    return resultCache.get(
+      Arrays.asList("getFileReferenceCount", fileId, referenceId),
+      () -> new ResultCache.Computed<>(
+        computeFileReferenceCount(fileId, referenceId),
+        ENTRY_SIZE));
+  }
+
+  private int computeFileReferenceCount(String fileId, int referenceId) {
     long fileIdLong = Long.parseUnsignedLong(fileId);
+    FileReferenceType fileReferenceType =
+      FileReferenceType.values()[referenceId];
+    JavaFileSummary javaFileSummary = queryJavaFileSummary(fileIdLong);
+
+    if (javaFileSummary != null) {
+      return getSummaryCount(javaFileSummary, fileReferenceType);
+    }
 
-    switch (FileReferenceType.values()[referenceId]) {
+    switch (fileReferenceType) {
       case IMPORTS:
-        return queryJavaImportNodesInFile(fileIdLong).size();
+        return countJavaImportNodesInFile(fileIdLong);
       case TYPES:
-        return queryJavaTypeNodesInFile(fileIdLong).size();
+        return countJavaTypeNodesInFile(fileIdLong);
       case CONSTRUCTORS:
-        return queryJavaConstructorNodesInFile(fileIdLong).size();
+        return countJavaConstructorNodesInFile(fileIdLong);
       case METHODS:
-        return queryJavaMethodNodesInFile(fileIdLong).size();
+        return countJavaMethodNodesInFile(fileIdLong);
     }
 
     return 0;
@@ -569,11 +644,33 @@ public class JavaQueryHandler implements JavaService.Iface {
 
   @Override
   public List<AstNodeInfo> getFileReferences(String fileId, int referenceId) {
+    return resultCache.get(
+      Arrays.asList("getFileReferences", fileId, referenceId),
+      () -> {
+        List<AstNodeInfo> references =
+          computeFileReferences(fileId, referenceId);
+
+        return new ResultCache.Computed<>(references, getSize(references));
+      });
+  }
+
+  private List<AstNodeInfo> computeFileReferences(
+    String fileId, int referenceId)
+  {
     long fileIdLong = Long.parseUnsignedLong(fileId);
+    FileReferenceType fileReferenceType =
+      FileReferenceType.values()[referenceId];
+    JavaFileSummary javaFileSummary = queryJavaFileSummary(fileIdLong);
     List<JavaAstNode> javaAstNodes = new ArrayList<>();
     List<AstNodeInfo> javaAstNodeInfos;
 
-    switch (FileReferenceType.values()[referenceId]) {
+    if (javaFileSummary != null) {
+      return createAstNodeInfos(
+        queryJavaAstNodesByIds(
+          getSummaryNodeIds(javaFileSummary, fileReferenceType)));
+    }
+
+    switch (fileReferenceType) {
       case IMPORTS:
         javaAstNodes = queryJavaImportNodesInFile(fileIdLong);
         break;
@@ -593,9 +690,56 @@ public class JavaQueryHandler implements JavaService.Iface {
     return javaAstNodeInfos;
   }
 
+  private int getSummaryCount(
+    JavaFileSummary javaFileSummary, FileReferenceType fileReferenceType)
+  {
+    switch (fileReferenceType) {
+      case IMPORTS:
+        return javaFileSummary.getImportCount();
+      case TYPES:
+        return javaFileSummary.getTypeCount();
+      case CONSTRUCTORS:
+        return javaFileSummary.getConstructorCount();
+      case METHODS:
+        return javaFileSummary.getMethodCount();
+    }
+
+    return 0;
+  }
+
+  private List<Long> getSummaryNodeIds(
+    JavaFileSummary javaFileSummary, FileReferenceType fileReferenceType)
+  {
+    String nodes = "";
+
+    switch (fileReferenceType) {
+      case IMPORTS:
+        nodes = javaFileSummary.getImportNodes();
+        break;
+      case TYPES:
+        nodes = javaFileSummary.getTypeNodes();
+        break;
+      case CONSTRUCTORS:
+        nodes = javaFileSummary.getConstructorNodes();
+        break;
+      case METHODS:
+        nodes = javaFileSummary.getMethodNodes();
+        break;
+    }
+
+    if (nodes == null || nodes.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    return Arrays.stream(nodes.split(","))
+      .map(Long::parseLong)
+      .collect(Collectors.toList());
+  }
+
   @Override
   public Map<String, Integer> getDiagramTypes(String javaAstNodeId) {
-    JavaAstNode javaAstNode = queryJavaAstNode(Long.parseLong(javaAstNodeId));
+    JavaAstNode javaAstNode =
+      queryJavaAstNodeHeader(Long.parseLong(javaAstNodeId));
     HashMap<String, Integer> diagramTypes = new HashMap<>();
 
     switch (javaAstNode.getSymbolType())
@@ -622,18 +766,20 @@ public class JavaQueryHandler implements JavaService.Iface {
 
   @Override
   public String getDiagram(String javaAstNodeId, int diagramId) {
-    JavaAstNode javaAstNode = queryJavaAstNode(Long.parseLong(javaAstNodeId));
+    JavaAstNode javaAstNode =
+      queryJavaAstNodeHeader(Long.parseLong(javaAstNodeId));
+    Diagram diagram = new Diagram();
 
     switch (DiagramType.values()[diagramId])
     {
       case METHOD_CALL:
-        break;
+        return diagram.getMethodCallDiagram(javaAstNode);
 
       case DETAILED_CLASS:
-        break;
+        return diagram.getDetailedClassDiagram(javaAstNode);
 
       case CLASS_COLLABORATION:
-        break;
+        return diagram.getClassCollaborationDiagram(javaAstNode);
     }
 
     return "";
@@ -644,54 +790,86 @@ public class JavaQueryHandler implements JavaService.Iface {
     FileRange fileRange, List<String> content)
   {
     List<SyntaxHighlight> syntaxHighlights = new ArrayList<>();
+    Iterator<Object[]> rows = queryJavaAstNodeRanges(fileRange).iterator();
+    Object[] row = rows.hasNext() ? rows.next() : null;
+
     /*
-    Pattern specialChars = Pattern.compile("[-\\[\\]{}()*+?.,\\^$|#\\s]");
-    List<JavaAstNode> javaAstNodes = queryJavaAstNodesByFileRange(fileRange);
-
-    javaAstNodes.stream()
-      .filter(n -> !n.getAstValue().isEmpty())
-      .forEach(n -> {
-        Matcher matcher = specialChars.matcher(n.getAstValue());
-        String sanitizedAstValue =
-          matcher.replaceAll(matchResult -> "\\\\" + matchResult.group());
-        String reg = "\\b" + sanitizedAstValue + "\\b";
-        int startLine = (int) n.getLocation_range_start_line();
-        int endLine = (int) n.getLocation_range_end_line();
-
-        for (int i = startLine - 1; i < endLine && i < content.size(); ++i) {
-          Pattern wordPattern = Pattern.compile(reg);
-          Matcher wordMatcher = wordPattern.matcher(content.get(i));
-
-          while (wordMatcher.find()) {
-            MatchResult matchResult = wordMatcher.toMatchResult();
-            SyntaxHighlight syntax = new SyntaxHighlight();
-            Range range = new Range();
-            Position startPosition = new Position();
-            Position endPosition = new Position();
-
-            startPosition.line = i + 1;
-            startPosition.column = matchResult.start() + 1;
-            endPosition.line = i + 1;
-            endPosition.column = matchResult.end() + 1;
-
-            range.startpos = startPosition;
-            range.endpos = endPosition;
-
-            syntax.range = range;
-
-            String symbolClass = "cm-" + n.getSymbolType().getValue();
-
-            syntax.className = symbolClass + " " +
-              symbolClass + "-" + n.getAstType().getValue();
-
-            syntaxHighlights.add(syntax);
+      The ranges of the nodes are ordered by their start lines, so they are
+      matched to the lines in a single pass. Nodes spanning multiple lines,
+      like the declarations of methods, are not highlighted as a whole.
+    */
+    for (int i = 0; i < content.size() && row != null; ++i) {
+      int lineNumber = i + 1;
+      int lineLength = content.get(i).length();
+
+      while (row != null && (long) row[0] <= lineNumber) {
+        if ((long) row[0] == lineNumber && (long) row[2] == lineNumber) {
+          long startColumn = (long) row[1];
+          long endColumn = Math.min((long) row[3], lineLength + 1);
+
+          if (startColumn < endColumn) {
+            syntaxHighlights.add(
+              getSyntaxHighlight(
+                lineNumber, startColumn, endColumn,
+                (SymbolType) row[4], (AstType) row[5]));
           }
         }
-      });
-    */
+
+        row = rows.hasNext() ? rows.next() : null;
+      }
+    }
+
     return syntaxHighlights;
   }
 
+  private SyntaxHighlight getSyntaxHighlight(
+    int line, long startColumn, long endColumn,
+    SymbolType symbolType, AstType astType)
+  {
+    SyntaxHighlight syntax = new SyntaxHighlight();
+    Range range = new Range();
+    Position startPosition = new Position();
+    Position endPosition = new Position();
+
+    startPosition.line = line;
+    startPosition.column = (int) startColumn;
+    endPosition.line = line;
+    endPosition.column = (int) endColumn;
+
+    range.startpos = startPosition;
+    range.endpos = endPosition;
+
+    syntax.range = range;
+
+    String symbolClass = "cm-" + symbolType.getValue();
+
+    syntax.className =
+      symbolClass + " " + symbolClass + "-" + astType.getValue();
+
+    return syntax;
+  }
+
+  @Override
+  public Map<String, Long> getCacheStatistics() {
+    Map<String, Long> statistics = new HashMap<>();
+
+    statistics.put("hits", resultCache.getHits());
+    statistics.put("misses", resultCache.getMisses());
+    statistics.put("size", resultCache.getWeight());
+
+    return statistics;
+  }
+
+  private long getSize(String string) {
+    return string == null ? 0 : 2L * string.length();
+  }
+
+  private long getSize(List<AstNodeInfo> astNodeInfos) {
+    return ENTRY_SIZE + astNodeInfos.stream()
+      .mapToLong(n -> ENTRY_SIZE + getSize(n.astNodeValue))
+      .sum();
+  }
+
   private List<AstNodeInfo> createAstNodeInfos(List<JavaAstNode> javaAstNodes) {
     Map<Long, List<String>> tags = getTags(javaAstNodes);
 
@@ -737,59 +915,101 @@ public class JavaQueryHandler implements JavaService.Iface {
     return astNodeInfo;
   }
 
+  /*
+    The tags are the visibilities of the member types of the nodes and of
+    their definitions. These are read for all nodes at once: one query for
+    the definitions and one for the member types.
+  */
   private Map<Long, List<String>> getTags(List<JavaAstNode> javaAstNodes) {
     Map<Long, List<String>> tags = new HashMap<>();
+    List<JavaAstNode> members = javaAstNodes.stream()
+      .filter(n -> getMemberTypeKind(n) != null)
+      .collect(Collectors.toList());
+
+    if (members.isEmpty()) {
+      return tags;
+    }
 
-    javaAstNodes.forEach(node -> {
-      List<JavaAstNode> definitions = queryDefinitionNodes(node);
+    Map<Long, JavaAstNode> definitions = new HashMap<>();
+
+    queryJavaAstNodes(
+      members.stream()
+        .map(JavaAstNode::getDefEntityHash)
+        .collect(Collectors.toSet()),
+      AstType.DEFINITION
+    ).forEach(d -> definitions.putIfAbsent(d.getEntityHash(), d));
+
+    Set<Long> memberAstNodeIds = new HashSet<>();
+
+    members.forEach(node -> {
+      memberAstNodeIds.add(node.getId());
+      memberAstNodeIds.add(
+        definitions.getOrDefault(node.getDefEntityHash(), node).getId());
+    });
+
+    Map<Long, List<JavaMemberType>> javaMemberTypes =
+      queryJavaMemberTypes(memberAstNodeIds).stream()
+        .collect(Collectors.groupingBy(m -> m.getMemberAstNode().getId()));
+
+    members.forEach(node -> {
       JavaAstNode definition =
-        definitions.isEmpty() ? node : definitions.get(0);
-
-      switch (node.getSymbolType()) {
-        case TYPE:
-          putTags(node, definition, MemberTypeKind.TYPE, tags);
-          break;
-        case CONSTRUCTOR:
-          putTags(node, definition, MemberTypeKind.CONSTRUCTOR, tags);
-          break;
-        case VARIABLE:
-          putTags(node, definition, MemberTypeKind.FIELD, tags);
-          break;
-        case METHOD:
-          putTags(node, definition, MemberTypeKind.METHOD, tags);
-          break;
-        case ENUM:
-          putTags(node, definition, MemberTypeKind.ENUM, tags);
-          break;
-        case ENUM_CONSTANT:
-          putTags(node, definition, MemberTypeKind.ENUM_CONSTANT, tags);
-          break;
+        definitions.getOrDefault(node.getDefEntityHash(), node);
+      MemberTypeKind memberTypeKind = getMemberTypeKind(node);
+
+      putTags(
+        node, javaMemberTypes.get(definition.getId()), memberTypeKind, tags);
+
+      if (definition.getId() != node.getId()) {
+        putTags(
+          node, javaMemberTypes.get(node.getId()), memberTypeKind, tags);
       }
     });
 
     return tags;
   }
 
+  private MemberTypeKind getMemberTypeKind(JavaAstNode javaAstNode) {
+    switch (javaAstNode.getSymbolType()) {
+      case TYPE:
+        return MemberTypeKind.TYPE;
+      case CONSTRUCTOR:
+        return MemberTypeKind.CONSTRUCTOR;
+      case VARIABLE:
+        return MemberTypeKind.FIELD;
+      case METHOD:
+        return MemberTypeKind.METHOD;
+      case ENUM:
+        return MemberTypeKind.ENUM;
+      case ENUM_CONSTANT:
+        return MemberTypeKind.ENUM_CONSTANT;
+      default:
+        return null;
+    }
+  }
+
   private void putTags(
-    JavaAstNode javaAstNode, JavaAstNode definition,
+    JavaAstNode javaAstNode, List<JavaMemberType> javaMemberTypes,
     MemberTypeKind memberTypeKind, Map<Long, List<String>> tags)
   {
-    List<JavaMemberType> javaMemberTypes =
-      queryJavaMemberTypes(javaAstNode, definition, memberTypeKind);
-
-    javaMemberTypes.forEach(m -> {
-      long nodeId = javaAstNode.getId();
-      if (!tags.containsKey(nodeId)) {
-        tags.put(
-          nodeId,
-          new ArrayList<>(
-            Collections.singleton(m.getVisibility().getName())
-          )
-        );
-      } else {
-        tags.get(nodeId).add(m.getVisibility().getName());
-      }
-    });
+    if (javaMemberTypes == null) {
+      return;
+    }
+
+    javaMemberTypes.stream()
+      .filter(m -> m.getKind() == memberTypeKind)
+      .forEach(m -> {
+        long nodeId = javaAstNode.getId();
+        if (!tags.containsKey(nodeId)) {
+          tags.put(
+            nodeId,
+            new ArrayList<>(
+              Collections.singleton(m.getVisibility().getName())
+            )
+          );
+        } else {
+          tags.get(nodeId).add(m.getVisibility().getName());
+        }
+      });
   }
 
   private FileRange getFileRange(JavaAstNode javaAstNode) {
@@ -1,9 +1,7 @@
 package service.srcjava;
 
 import org.apache.log4j.BasicConfigurator;
-import org.apache.thrift.server.TServer;
-import org.apache.thrift.server.TServer.Args;
-import org.apache.thrift.server.TSimpleServer;
+import org.apache.thrift.server.TThreadPoolServer;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TServerTransport;
 
@@ -23,19 +21,26 @@ public class JavaQueryServer {
       javaQueryHandler = new JavaQueryHandler();
       processor = new JavaService.Processor<>(javaQueryHandler);
 
-      Runnable simple = () -> simple(processor);
-      new Thread(simple).start();
+      Runnable threadPool = () -> threadPool(processor);
+      new Thread(threadPool).start();
     } catch (Exception e) {
       LOGGER.log(
         Level.SEVERE, "Java server starting failed!");
     }
   }
 
-  public static void simple(JavaService.Processor<?> processor) {
+  public static void threadPool(JavaService.Processor<?> processor) {
     try {
       TServerTransport serverTransport = new TServerSocket(9090);
-      TServer server =
-        new TSimpleServer(new Args(serverTransport).processor(processor));
+      TThreadPoolServer.Args a =
+        new TThreadPoolServer.Args(serverTransport)
+          .processor(new EntityManagerProcessor(processor));
+      int threadNum = Integer.parseInt(System.getProperty("threadNum"));
+
+      a.minWorkerThreads(1);
+      a.maxWorkerThreads(threadNum);
+
+      TThreadPoolServer server = new TThreadPoolServer(a);
 
       server.serve();
     } catch (Exception e) {
@@ -0,0 +1,124 @@
+package service.srcjava;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+  Least recently used cache of service results, bounded by the estimated
+  size of the cached results. A result may depend on any file, so the whole
+  cache is dropped when the parse generation of the database changes.
+*/
+public class ResultCache {
+  private final long maxWeight;
+  private final LongSupplier parseGeneration;
+  private final LinkedHashMap<List<Object>, Entry> entries;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private long generation;
+  private long weight;
+
+  public ResultCache(long maxWeight, LongSupplier parseGeneration) {
+    this.maxWeight = maxWeight;
+    this.parseGeneration = parseGeneration;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+  }
+
+  /*
+    The result is computed outside the lock, so concurrent misses of the
+    same key may compute it more than once. Results are pure functions of
+    the database, so either of them can be kept.
+  */
+  @SuppressWarnings("unchecked")
+  public <T> T get(List<Object> key, Supplier<Computed<T>> computation) {
+    long currentGeneration = parseGeneration.getAsLong();
+
+    synchronized (this) {
+      if (currentGeneration != generation) {
+        entries.clear();
+        weight = 0;
+        generation = currentGeneration;
+      }
+
+      Entry entry = entries.get(key);
+
+      if (entry != null) {
+        hits.incrementAndGet();
+        return (T) entry.value;
+      }
+    }
+
+    misses.incrementAndGet();
+
+    Computed<T> computed = computation.get();
+
+    synchronized (this) {
+      // A result of an earlier generation is not kept
+      if (currentGeneration != generation) {
+        return computed.value;
+      }
+
+      remove(key);
+
+      if (computed.weight <= maxWeight) {
+        entries.put(key, new Entry(computed));
+        weight += computed.weight;
+        evict();
+      }
+    }
+
+    return computed.value;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  private void evict() {
+    // The iteration order of the entries is the order of their last access
+    while (weight > maxWeight && !entries.isEmpty()) {
+      remove(entries.keySet().iterator().next());
+    }
+  }
+
+  private void remove(List<Object> key) {
+    Entry entry = entries.remove(key);
+
+    if (entry == null) {
+      return;
+    }
+
+    weight -= entry.weight;
+  }
+
+  public static class Computed<T> {
+    private final T value;
+    private final long weight;
+
+    public Computed(T value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  private static class Entry {
+    private final Object value;
+    private final long weight;
+
+    private Entry(Computed<?> computed) {
+      this.value = computed.value;
+      this.weight = computed.weight;
+    }
+  }
+}